@@ -89,7 +89,7 @@ public class ImageCanvas extends JComponent {
         private final Stroke paintStroke = new BasicStroke(5f,BasicStroke.JOIN_ROUND,BasicStroke.CAP_ROUND);
         private BufferedImage cursor;
 
-        private Image zoomImage;
+        private final ZoomTiles zoomTiles = new ZoomTiles(ImageCanvas.this::repaint);
         private BufferedImage originalImage;
         private Point zoomOffset;
         private int zoomW, zoomH;
@@ -352,9 +352,7 @@ public class ImageCanvas extends JComponent {
          * @param orgImage the original image to zoom into
          */
         void createZoomImage(final BufferedImage orgImage) {
-            synchronized (this) {
-                zoomImage = null;
-            }
+            zoomTiles.setSource(null,0,0,doFastRescaling);
             this.originalImage = orgImage;
             if (orgImage == null) {
                 return;
@@ -395,21 +393,9 @@ public class ImageCanvas extends JComponent {
                     zoomW *= zoomFactor;
                     zoomH *= zoomFactor;
                     if (zoomW != 0 && zoomH != 0) {
-                        BufferedImage scaledImage = ImageUtil.getScaledImage(orgImage,Color.BLACK,zoomW,zoomH,
-                                doFastRescaling);
-                        Graphics g = getGraphics();
-                        if (g != null) {
-                            // do an off screen draw of the image. Without this the image takes a long time to render
-                            // the first time it is used. Once it's been drawn somewhere, the next time it just falls
-                            // through. We could use MediaTracker, but this is twice as fast.
-                            g = g.create();
-                            g.setClip(0,0,0,0);
-                            g.drawImage(scaledImage,0,0,null);
-                            g.dispose();
-                        }
-
+                        // only the visible tiles of the zoomed in image are rendered, when they are painted
+                        zoomTiles.setSource(orgImage,zoomW,zoomH,doFastRescaling);
                         synchronized (this) {
-                            zoomImage = scaledImage;
                             if (zoomedIn == ZOOM || zoomedIn == ORIGINAL) {
                                 repaint();
                             }
@@ -457,20 +443,24 @@ public class ImageCanvas extends JComponent {
             // paint entire screen black to avoid artifacts when increasing the size of the frame
             if (zoomedIn > NONE) {
                 Image im = null;
+                int w = 0, h = 0;
                 synchronized (this) {
                     if (zoomedIn == ZOOM) {
-                        im = zoomImage;
+                        w = zoomTiles.getWidth();
+                        h = zoomTiles.getHeight();
                     } else if (zoomedIn == ORIGINAL) {
                         im = originalImage;
+                        if (im != null) {
+                            w = im.getWidth(null);
+                            h = im.getHeight(null);
+                        }
                     }
                 }
                 if (zoomedIn < CURSOR) {
-                    if (im != null && zoomTranslation != null) {
+                    if (w > 0 && h > 0 && zoomTranslation != null) {
                         int x = zoomTranslation.x;
                         int y = zoomTranslation.y;
-                        int w = im.getWidth(null);
                         int width = getWidth();
-                        int h = im.getHeight(null);
                         int height = getHeight();
                         boolean paintBackground = false;
                         if (w <= width) {
@@ -484,7 +474,11 @@ public class ImageCanvas extends JComponent {
                         if (paintBackground) {
                             g.fillRect(0,0,screenDimension.width,screenDimension.height);
                         }
-                        g.drawImage(im,x,y,null);
+                        if (im == null) {
+                            zoomTiles.paint((Graphics2D) g,x,y,width,height);
+                        } else {
+                            g.drawImage(im,x,y,null);
+                        }
                     }
                     return true;
                 } else if (zoomedIn == CURSOR) {
@@ -678,6 +672,7 @@ public class ImageCanvas extends JComponent {
      */
     public void dispose() {
         zoomHandler.zoomExecutor.shutdownNow();
+        zoomHandler.zoomTiles.dispose();
     }
 
     /**
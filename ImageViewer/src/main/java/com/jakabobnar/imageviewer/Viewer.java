@@ -27,18 +27,26 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
 
 import javax.imageio.IIOException;
 import javax.imageio.ImageIO;
@@ -50,12 +58,23 @@ import javax.swing.Timer;
 import com.jakabobnar.colorprofile.ColorProfileManager;
 import com.jakabobnar.imageviewer.components.AboutDialog;
 import com.jakabobnar.imageviewer.components.HelpDialog;
+import com.jakabobnar.imageviewer.image.DecodePipeline;
 import com.jakabobnar.imageviewer.image.EXIFData;
 import com.jakabobnar.imageviewer.image.EXIFImage;
+import com.jakabobnar.imageviewer.image.FilePrefetcher;
+import com.jakabobnar.imageviewer.image.FolderIndex;
+import com.jakabobnar.imageviewer.image.FolderScanner;
+import com.jakabobnar.imageviewer.image.FolderWatcher;
 import com.jakabobnar.imageviewer.image.Histogram;
+import com.jakabobnar.imageviewer.image.ImageCache;
 import com.jakabobnar.imageviewer.image.ImageFile;
+import com.jakabobnar.imageviewer.image.ImageReaders;
+import com.jakabobnar.imageviewer.image.ImageSlot;
 import com.jakabobnar.imageviewer.image.ImageUtil;
-import com.jakabobnar.imageviewer.image.LinkBuffer;
+import com.jakabobnar.imageviewer.image.LoadingService;
+import com.jakabobnar.imageviewer.image.OrderedBuffer;
+import com.jakabobnar.imageviewer.image.ReadAhead;
+import com.jakabobnar.imageviewer.image.SlotBuffer;
 import com.jakabobnar.imageviewer.image.Sorting;
 import com.jakabobnar.imageviewer.util.AbstractEventAdapter;
 import com.jakabobnar.imageviewer.util.AudioPlayer;
@@ -79,6 +98,8 @@ public class Viewer extends JPanel {
     private static final int NUM_CORES = Runtime.getRuntime().availableProcessors();
     // The minimum size for the buffer to store the images when doing fast reading/scrolling
     private static final int FAST_READ_BUFFER_MIN = 3 * NUM_CORES;
+    // The maximum number of files passed to the file prefetcher (the prefetcher limits the number of bytes)
+    private static final int MAX_PREFETCH_FILES = 100;
     // A no image constant, to avoid recreating the object too many times
     private static final EXIFImage NO_IMAGE = new EXIFImage(new EXIFData(),ImageUtil.NO_IMAGE,ImageUtil.NO_IMAGE);
     private static final Cursor NO_SCROLL_CURSOR;
@@ -108,29 +129,31 @@ public class Viewer extends JPanel {
     private volatile boolean waitForImagesToLoadWhenScrolling = true;
     private volatile boolean preferQualityOverSpeedWhenScrolling = false;
     private Sorting sorting = Sorting.NAME;
+    private FolderIndex folderIndex;
     private int step = 10;
     private boolean mouseButtonAdvance = false;
-    private transient ExecutorService worker;
-    private transient ExecutorService imageReloader;
-    private transient ExecutorService mtImageLoader;
+    // The executors live as long as the viewer; obsolete tasks are cancelled, but the threads are kept
+    private final transient ImageExecutor worker = new ImageExecutor("Worker",1,new DismissableBlockingQueue<>(2));
+    private final transient ImageExecutor imageReloader = new ImageExecutor("ImageReloader",1,
+            new DismissableBlockingQueue<>(2));
+    private final transient ImageExecutor mtImageLoader = new ImageExecutor("MultiCoreLoader",NUM_CORES,
+            new LinkedBlockingQueue<>(4 * NUM_CORES));
+    private final transient ImageExecutor readAheadLoader = new ImageExecutor("ReadAhead",1,
+            new LinkedBlockingQueue<>());
+    private final transient LoadingService slotLoader = new LoadingService("ImageLoader",NUM_CORES,this::loadSlot);
+    private final transient DecodePipeline decodePipeline = new DecodePipeline(NUM_CORES);
     private Timer autoSlideShowTimer;
     private int transitionDuration;
     private int slideShowDuration;
     private final ImageCanvas canvas;
     private final Toolbar toolbar;
-    // Original non profiled images, as loaded from file. If color management is selected, than this image is already
-    // converted to sRGB color space (done by the image loading plugins)
-    private transient BufferedImage[] originalImages;
-    // Color managed images. If display profile is unknown, these are identical to original images
-    private transient BufferedImage[] images;
-    // Scaled images (fully color managed)
-    private transient BufferedImage[] scaledImages;
-    // Exif of the currently loaded images
-    private transient EXIFData[] exif;
-    // Files from which the above images were loaded
-    private File[] imageFiles;
-    // Currently applied non profiled image
-    private transient volatile BufferedImage theOriginalNonProfiledImage;
+    // Slots of the images around the current image. Each slot holds the file, the original non profiled image (if
+    // color management is selected, it is already converted to sRGB color space by the image loading plugins), the
+    // color managed image (identical to the original if the display profile is unknown), the scaled image and the exif.
+    // The buffer is lock free: the slots are swapped atomically and never block the loading threads.
+    private final transient SlotBuffer slots = new SlotBuffer(BUFFER_SIZE);
+    // Currently applied slot
+    private transient volatile ImageSlot appliedSlot;
     // File that contains the currently displayed image
     private volatile File loadedFile;
     private transient volatile EXIFData loadedEXIF = new EXIFData();
@@ -141,14 +164,31 @@ public class Viewer extends JPanel {
     private File[] files;
     // For convenience only: always identical to files.length
     private int numFiles;
-    private volatile LinkBuffer fastReadBuffer = new LinkBuffer();
+    private final OrderedBuffer fastReadBuffer = new OrderedBuffer();
+    // Recently loaded and scaled images, which are reused when navigating back and forth
+    private final transient ImageCache imageCache = new ImageCache(Runtime.getRuntime().maxMemory() / 4);
+    // Decides how many images are loaded into the image cache ahead of the current image
+    private final transient ReadAhead readAhead = new ReadAhead(6);
+    // Reads the upcoming files into the page cache ahead of the decoders
+    private final transient FilePrefetcher filePrefetcher = new FilePrefetcher(256L * 1024L * 1024L,
+            ImageUtil.getSourceCache());
+    // Lists and sorts the opened folder in the background
+    private final transient ImageExecutor folderScanner = new ImageExecutor("FolderScanner",1,
+            new LinkedBlockingQueue<>());
+    // Notifies about the files added to or removed from the open folder
+    private final transient FolderWatcher folderWatcher = new FolderWatcher();
+    // Incremented when a folder is opened; the results of the previous scans are discarded
+    private final AtomicInteger scanGeneration = new AtomicInteger();
     private volatile int lastLoadedId = 0;
+    // Incremented whenever the user moves to a different image; stale progressive loads compare against it
+    private final AtomicInteger displayGeneration = new AtomicInteger();
     private volatile AtomicBoolean loaded = new AtomicBoolean(false);
     private volatile AtomicBoolean fullyLoaded = new AtomicBoolean(false);
     private volatile AtomicBoolean wheelInMotion = new AtomicBoolean(false);
     private ColorSpace colorSpace;
     private File colorProfileFile;
     private float trueZoomValue = 3f;
+    // Guards the list of files and the position in it; the image buffers (slots) do not need it
     private final transient Object mutex = new Object();
     private int currentWidth, currentHeight;
     private boolean disableScrolling = false;
@@ -288,11 +328,6 @@ public class Viewer extends JPanel {
     public Viewer(File file, ViewerFrame frame) {
         super(new GridBagLayout());
         this.viewerFrame = frame;
-        imageFiles = new File[BUFFER_SIZE];
-        originalImages = new BufferedImage[BUFFER_SIZE];
-        images = new BufferedImage[BUFFER_SIZE];
-        scaledImages = new BufferedImage[BUFFER_SIZE];
-        exif = new EXIFData[BUFFER_SIZE];
         openFileOrFolder(file);
         toolbar = new Toolbar();
         toolbar.addToolbarListener(new ToolbarListener() {
@@ -382,6 +417,11 @@ public class Viewer extends JPanel {
         setPlaySoundOnCycle(settings.playSoundOnCycle);
         setWaitForImagesToLoadWhenScrolling(settings.waitForImagesToLoadWhenScrolling);
         setPreferQualityOverSpeedWhenScrolling(settings.preferQualityOverSpeedWhenScrolling);
+        setPreviewCacheSize(settings.previewCacheSize);
+        setImageCacheSize(settings.imageCacheSize);
+        setMaxLookAhead(settings.maxLookAhead);
+        setFilePrefetchSize(settings.filePrefetchSize);
+        setSourceCacheSize(settings.sourceCacheSize);
         setMouseButtonAdvance(settings.mouseButtonAdvance);
         setScaleSmallImagesToFit(settings.scaleToFit);
         setBestQualityScaling(settings.scaleBestQuality);
@@ -408,6 +448,7 @@ public class Viewer extends JPanel {
         }
         setSlideShowDuration(settings.slideShowDuration);
         setUseMultipleCPUCores(settings.useMultipleCores);
+        setPersistentMetadataCache(settings.persistMetadataCache);
         setZoomFactor(settings.zoomFactor);
         setLMBAction(settings.leftMouseButtonAction);
         setHighlightCursorColor(settings.cursorHue / 255f,settings.cursorOpacity);
@@ -432,20 +473,21 @@ public class Viewer extends JPanel {
      */
     public void dispose() {
         stopAllImageLoading();
-        if (imageReloader != null) {
-            imageReloader.shutdownNow();
-        }
+        worker.shutdownNow();
+        imageReloader.shutdownNow();
+        mtImageLoader.shutdownNow();
+        readAheadLoader.shutdownNow();
+        slotLoader.dispose();
+        decodePipeline.dispose();
         canvas.dispose();
-        synchronized (mutex) {
-            // Null the buffers to help the GC
-            for (int i = 0; i < BUFFER_SIZE; i++) {
-                imageFiles[i] = null;
-                originalImages[i] = null;
-                images[i] = null;
-                scaledImages[i] = null;
-                exif[i] = null;
-            }
-        }
+        filePrefetcher.dispose();
+        folderScanner.shutdownNow();
+        folderWatcher.stop();
+        imageCache.clear();
+        ImageUtil.getSourceCache().clear();
+        ImageUtil.saveMetadataCache();
+        // Empty the buffers to help the GC
+        slots.clear();
     }
 
     /**
@@ -520,6 +562,7 @@ public class Viewer extends JPanel {
         if (this.waitForImagesToLoadWhenScrolling == show) return;
         stopAllImageLoading();
         this.waitForImagesToLoadWhenScrolling = show;
+        reloadEmptySlots();
     }
 
     /**
@@ -532,6 +575,70 @@ public class Viewer extends JPanel {
         if (this.preferQualityOverSpeedWhenScrolling == preferQuality) return;
         stopAllImageLoading();
         this.preferQualityOverSpeedWhenScrolling = preferQuality;
+        reloadEmptySlots();
+    }
+
+    /**
+     * Sets the maximum size of the persistent cache of previews, which are shown when scrolling fast. If the size is 0
+     * the previews are not cached.
+     *
+     * @param sizeInMB the maximum size of the preview cache in megabytes
+     */
+    public void setPreviewCacheSize(int sizeInMB) {
+        ImageUtil.setPreviewCacheSize(sizeInMB);
+    }
+
+    /**
+     * Sets the maximum amount of heap used by the recently loaded images. The size is limited to half of the maximum
+     * heap size, regardless of the requested size.
+     *
+     * @param sizeInMB the maximum size of the image cache in megabytes
+     */
+    public void setImageCacheSize(int sizeInMB) {
+        long maxSize = Math.min(sizeInMB * 1024L * 1024L,Runtime.getRuntime().maxMemory() / 2);
+        imageCache.setMaxSize(maxSize);
+    }
+
+    /**
+     * Sets the maximum number of images that are loaded in advance in the direction of travel. The actual number
+     * depends on how quickly the images are advanced, how long it takes to load them and the available memory.
+     *
+     * @param maxLookAhead the maximum number of images to load ahead
+     */
+    public void setMaxLookAhead(int maxLookAhead) {
+        readAhead.setMaxLookAhead(maxLookAhead);
+    }
+
+    /**
+     * Sets the maximum amount of heap used by the raw contents of the recently viewed and upcoming files. The images
+     * are decoded from these contents without accessing the disk. The size is limited to a quarter of the maximum heap
+     * size, regardless of the requested size.
+     *
+     * @param sizeInMB the maximum size of the source cache in megabytes
+     */
+    public void setSourceCacheSize(int sizeInMB) {
+        ImageUtil.setSourceCacheSize(Math.min(sizeInMB * 1024L * 1024L,Runtime.getRuntime().maxMemory() / 4));
+    }
+
+    /**
+     * Sets whether the EXIF data of the viewed images and the indices of the opened folders are stored to disk, so
+     * that they can be reused in the next session.
+     *
+     * @param persistent true to store the metadata between sessions or false otherwise
+     */
+    public void setPersistentMetadataCache(boolean persistent) {
+        ImageUtil.setPersistentMetadataCache(persistent);
+        FolderIndex.setPersistent(persistent);
+    }
+
+    /**
+     * Sets the maximum number of bytes that are read ahead of the decoders. The files following the current image are
+     * read into the operating system's page cache until their total size reaches the given size.
+     *
+     * @param sizeInMB the prefetch size in megabytes
+     */
+    public void setFilePrefetchSize(int sizeInMB) {
+        filePrefetcher.setMaxSize(sizeInMB * 1024L * 1024L);
     }
 
     /**
@@ -580,13 +687,7 @@ public class Viewer extends JPanel {
     public void setShowEXIFData(boolean show) {
         this.showEXIFData = show;
         if (show) {
-            getMTImageLoader().execute(() -> {
-                EXIFData exif;
-                synchronized (mutex) {
-                    exif = this.loadedEXIF;
-                }
-                viewerFrame.getExifDisplayer().setData(exif);
-            });
+            mtImageLoader.execute(() -> viewerFrame.getExifDisplayer().setData(loadedEXIF));
         }
         viewerFrame.getExifDisplayer().setShowing(show);
     }
@@ -600,23 +701,11 @@ public class Viewer extends JPanel {
     public void setShowHistogram(boolean show) {
         this.showHistogram = show;
         if (show) {
-            getMTImageLoader().execute(() -> {
-                Histogram histogram;
-                File file;
-                BufferedImage image;
-                synchronized (mutex) {
-                    histogram = this.loadedHistogram;
-                    file = loadedFile;
-                    image = theOriginalNonProfiledImage;
+            mtImageLoader.execute(() -> {
+                ImageSlot slot = appliedSlot;
+                if (slot != null) {
+                    viewerFrame.getHistogramDisplayer().setHistogram(getHistogram(slot));
                 }
-                if (histogram == null
-                        || file != null && !file.getAbsolutePath().equals(histogram.getFile().getAbsolutePath())) {
-                    histogram = new Histogram(file,ImageUtil.imageHistogram(image));
-                    synchronized (mutex) {
-                        loadedHistogram = histogram;
-                    }
-                }
-                viewerFrame.getHistogramDisplayer().setHistogram(histogram);
             });
         }
         viewerFrame.getHistogramDisplayer().setShowing(show);
@@ -709,6 +798,7 @@ public class Viewer extends JPanel {
     public void setScaleSmallImagesToFit(boolean scaleToFit) {
         if (this.scaleToFit == scaleToFit) return;
         this.scaleToFit = scaleToFit;
+        imageCache.clear();
         reloadImages();
     }
 
@@ -720,6 +810,7 @@ public class Viewer extends JPanel {
     public void setBestQualityScaling(boolean bestQuality) {
         if (this.bestQualityScaling == bestQuality) return;
         this.bestQualityScaling = bestQuality;
+        imageCache.clear();
         reloadImages();
     }
 
@@ -731,6 +822,7 @@ public class Viewer extends JPanel {
     public void setRotateImage(boolean rotateImage) {
         if (this.rotateImage == rotateImage) return;
         this.rotateImage = rotateImage;
+        imageCache.clear();
         reloadImages();
     }
 
@@ -751,6 +843,7 @@ public class Viewer extends JPanel {
      */
     public void setUseMultipleCPUCores(boolean useMultipleCores) {
         this.useMulticore = useMultipleCores && NUM_CORES > 1;
+        readAheadLoader.setSize(useMulticore ? Math.max(1,NUM_CORES / 2) : 1);
     }
 
     /**
@@ -774,6 +867,7 @@ public class Viewer extends JPanel {
     public void setColorManage(boolean colorManage) {
         if (this.colorManage == colorManage) return;
         this.colorManage = colorManage;
+        imageCache.clear();
         reloadImages();
     }
 
@@ -786,6 +880,7 @@ public class Viewer extends JPanel {
         if (Objects.equals(this.backgroundColor,backgroundColor)) return;
         this.backgroundColor = backgroundColor;
         canvas.setBackgroundColor(backgroundColor);
+        imageCache.clear();
         reloadImages();
     }
 
@@ -864,6 +959,7 @@ public class Viewer extends JPanel {
             }
             colorProfileFile = colorProfile;
         }
+        imageCache.clear();
         reloadImages();
     }
 
@@ -877,91 +973,352 @@ public class Viewer extends JPanel {
     }
 
     /**
-     * Scan the working folder for all available images.
+     * Scan the working folder for all available images. If a file is given, the loading of that file (and its
+     * obvious neighbours, when sorting by name) starts immediately. The folder is listed and sorted in the background
+     * and the list of files is replaced when the scan completes.
      *
      * @param file the file at which to start and continue with all its siblings (but no subfolders)
      */
     public void openFileOrFolder(File file) {
         stopAllImageLoading();
+        final int generation = scanGeneration.incrementAndGet();
+        folderScanner.getQueue().clear();
+        folderWatcher.stop();
+        File[] provisional = null;
         synchronized (mutex) {
+            folderIndex = null;
             if (file == null) {
                 this.files = new File[0];
                 this.fileIndex = 0;
+            } else if (file.isFile()) {
+                provisional = guessNeighbours(file);
+                this.files = provisional;
+                this.fileIndex = indexOf(file,this.files,0,false);
             } else {
-                ImageUtil.clearCache();
-                File folder = file.isFile() ? file.getParentFile() : file;
-                File[] ff = folder.listFiles();
-                if (ff != null) {
-                    final Comparator<File> comparator = sorting.getComparator();
-                    List<File> orgList = Arrays.asList(ff);
-                    this.files = orgList.stream().filter(f -> {
-                        if (f == null) return false;
-                        try {
-                            return Files.probeContentType(f.toPath()).substring(0,5).equalsIgnoreCase("image");
-                        } catch (IOException e) {
-                            return false;
-                        } catch (NullPointerException e) {
-                            return f.getName().toLowerCase(Locale.UK).endsWith(".psd");
-                        }
-                    }).filter(f -> {
-                        //if there is a jpeg file with the same name only show the jpeg
-                        //this file is probably a raw file
-                        String fileName = f.getName();
-                        if (fileName.toLowerCase().endsWith("jpg") || fileName.toLowerCase().endsWith("jpeg")) {
-                            return true;
-                        }
-                        int dotIndex = fileName.lastIndexOf('.');
-                        if (dotIndex > 0) {
-                            fileName = fileName.substring(0,dotIndex+1);
-                        }
-                        File fileToFind = new File(folder, fileName + "jpg");
-                        if (fileToFind.exists()) {
-                            return false;
-                        }
-                        fileToFind = new File(folder, fileName + "jpeg");
-                        if (fileToFind.exists()) {
-                            return false;
-                        }
-                        return true;
-                    }).sorted(comparator).toArray(File[]::new);
-                } else {
-                    this.files = new File[0];
-                }
-                this.fileIndex = file.isFile() ? indexOf(file,this.files,0,false) : 0;
+                this.files = new File[0];
+                this.fileIndex = 0;
             }
             numFiles = this.files.length;
         }
+        startLoading();
+        if (file == null) {
+            return;
+        }
+        final File[] provisionalFiles = provisional;
+        folderScanner.execute(() -> {
+            if (generation != scanGeneration.get()) {
+                return;
+            }
+            File folder = file.isFile() ? file.getParentFile() : file;
+            // Watch the folder before it is listed, so that the files created during the scan are not missed. The
+            // changes are handled in this thread, after the scanned files have been applied.
+            folderWatcher.watch(folder,(created, deleted, modified, overflow) -> folderScanner
+                    .execute(() -> folderChanged(generation,folder,created,deleted,modified,overflow)));
+            File[] images = FolderScanner.scan(folder);
+            FolderIndex index = null;
+            if (images == null) {
+                images = new File[0];
+            } else {
+                // The index provides all sorting attributes without touching the files that have not changed
+                index = FolderIndex.open(folder);
+                index.update(images,sorting == Sorting.DATE_TAKEN);
+                index.save();
+                sorting.sort(images,index);
+            }
+            if (generation != scanGeneration.get()) {
+                return;
+            }
+            applyScannedFiles(generation,file,provisionalFiles,images,index);
+        });
+    }
+
+    /**
+     * Updates the list of files after the files in the open folder were changed. The new files are inserted at their
+     * sorted positions and the deleted ones are removed, while the current image stays the same. The buffers are only
+     * reloaded if the images around the current image have changed. A raw file is shown when its JPEG sibling is
+     * deleted and hidden when the sibling is created. The changes may include the files that are already in the list,
+     * if they were made while the folder was being scanned. Must be called in the folder scanner thread; the buffers
+     * are updated in the event dispatch thread.
+     *
+     * @param generation the scan generation of the folder
+     * @param folder the changed folder
+     * @param created the files that were created
+     * @param deleted the files that were deleted
+     * @param modified the files that were modified
+     * @param overflow true if the changes are incomplete and the folder needs to be scanned again
+     */
+    private void folderChanged(int generation, File folder, Set<File> created, Set<File> deleted,
+            Set<File> modified, boolean overflow) {
+        if (generation != scanGeneration.get()) {
+            return;
+        }
+        File[] current;
+        FolderIndex index;
+        synchronized (mutex) {
+            current = files;
+            index = folderIndex;
+        }
+        Set<File> currentSet = new HashSet<>(Arrays.asList(current));
+        if (overflow) {
+            File[] scanned = FolderScanner.scan(folder);
+            if (scanned == null) {
+                return;
+            }
+            Set<File> scannedSet = new HashSet<>(Arrays.asList(scanned));
+            Arrays.stream(scanned).filter(f -> !currentSet.contains(f)).forEach(created::add);
+            Arrays.stream(current).filter(f -> !scannedSet.contains(f)).forEach(deleted::add);
+        }
+        // a listed file that was created again (during the scan or by replacing it) may have a different content
+        created.stream().filter(currentSet::contains).forEach(modified::add);
+        created.removeAll(currentSet);
+        Set<String> names = new HashSet<>();
+        Arrays.stream(current).forEach(f -> names.add(f.getName().toLowerCase(Locale.UK)));
+        created.forEach(f -> names.add(f.getName().toLowerCase(Locale.UK)));
+        deleted.forEach(f -> names.remove(f.getName().toLowerCase(Locale.UK)));
+        Set<File> candidates = new LinkedHashSet<>(created);
+        for (File f : deleted) {
+            if (FolderScanner.isJpeg(f.getName())) {
+                // the raw file that was hidden by the deleted jpeg may have to be shown now
+                for (File sibling : FolderScanner.siblings(f)) {
+                    names.add(sibling.getName().toLowerCase(Locale.UK));
+                    if (!currentSet.contains(sibling)) {
+                        candidates.add(sibling);
+                    }
+                }
+            }
+        }
+        List<File> added = candidates.stream().filter(f -> FolderScanner.isImage(f.getName(),names))
+                .collect(Collectors.toList());
+        Set<File> removed = new HashSet<>(deleted);
+        for (File f : current) {
+            // a raw file is hidden when its jpeg appears; a modified file may move to another position
+            if (modified.contains(f) || !FolderScanner.isImage(f.getName(),names)) {
+                removed.add(f);
+            }
+        }
+        modified.stream().filter(removed::contains).filter(File::isFile).forEach(added::add);
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        for (File f : removed) {
+            // only the images of the changed files are dropped, the rest of the cache stays valid
+            if (deleted.contains(f) || modified.contains(f)) {
+                imageCache.remove(f);
+                ImageUtil.getSourceCache().remove(f);
+            }
+        }
+        if (index != null) {
+            index.remove(removed);
+            index.refresh(added,sorting == Sorting.DATE_TAKEN);
+            index.save();
+        }
+        List<File> list = new ArrayList<>(current.length + added.size());
+        for (File f : current) {
+            if (!removed.contains(f)) {
+                list.add(f);
+            }
+        }
+        Comparator<File> comparator = sorting.getComparator(index);
+        for (File f : added) {
+            int position = Collections.binarySearch(list,f,comparator);
+            list.add(position < 0 ? -position - 1 : position + 1,f);
+        }
+        File[] images = list.toArray(new File[list.size()]);
+        boolean sameNeighbourhood;
+        int idx;
+        synchronized (mutex) {
+            if (generation != scanGeneration.get() || files != current) {
+                return;
+            }
+            int oldIndex = fileIndex;
+            File currentFile = at(current,oldIndex);
+            idx = list.indexOf(currentFile);
+            if (idx < 0) {
+                // the current file was removed, show the one that took its place
+                idx = Math.max(0,Math.min(oldIndex,images.length - 1));
+            }
+            sameNeighbourhood = !cycleWhenAtEnd && current.length > 0;
+            for (int i = -PRELOADING_BUFFER; sameNeighbourhood && i <= PRELOADING_BUFFER; i++) {
+                File f = at(current,oldIndex + i);
+                sameNeighbourhood = f == at(images,idx + i) && !removed.contains(f);
+            }
+            this.files = images;
+            this.fileIndex = idx;
+            numFiles = images.length;
+        }
+        final boolean initial = current.length == 0;
+        final boolean same = sameNeighbourhood;
+        SwingUtilities.invokeLater(() -> showUpdatedFiles(generation,initial,same));
+    }
+
+    /**
+     * Replaces the provisional list of files with the complete list of the scanned folder. If the images around the
+     * current image are the same in both lists, the loaded images are kept, otherwise the buffers are reloaded. The
+     * buffers are updated in the event dispatch thread.
+     *
+     * @param generation the scan generation of the folder
+     * @param file the file that was opened
+     * @param provisional the provisional list of files or null if there was none
+     * @param images the complete list of files in the folder
+     * @param index the index of the folder
+     */
+    private void applyScannedFiles(int generation, File file, File[] provisional, File[] images, FolderIndex index) {
+        boolean sameNeighbourhood;
+        int idx;
+        synchronized (mutex) {
+            if (provisional != null && this.files != provisional) {
+                return;
+            }
+            int oldIndex = fileIndex;
+            File current = provisional == null ? file : provisional[oldIndex];
+            if (provisional != null && images.length > 0) {
+                // keep the instances that are in the buffers, because the buffers are searched by identity
+                for (File f : provisional) {
+                    int i = indexOf(f,images,0,false);
+                    if (i >= 0 && i < images.length && images[i].equals(f)) {
+                        images[i] = f;
+                    }
+                }
+            }
+            folderIndex = index;
+            idx = images.length == 0 ? 0 : indexOf(current,images,0,false);
+            if (idx < 0 || idx >= images.length) {
+                idx = 0;
+            }
+            sameNeighbourhood = provisional != null && !cycleWhenAtEnd;
+            for (int i = -PRELOADING_BUFFER; sameNeighbourhood && i <= PRELOADING_BUFFER; i++) {
+                sameNeighbourhood = at(provisional,oldIndex + i) == at(images,idx + i);
+            }
+            this.files = images;
+            this.fileIndex = idx;
+            numFiles = images.length;
+        }
+        final boolean initial = provisional == null;
+        final boolean same = sameNeighbourhood;
+        SwingUtilities.invokeLater(() -> showUpdatedFiles(generation,initial,same));
+    }
+
+    /**
+     * Shows the current image after the list of files was replaced. Must be called in the event dispatch thread, which
+     * also handles the navigation by the user, so that the update cannot interleave with {@link #moveToIndex(int)}.
+     * The current index is taken at the time of the call, because the user may have moved since the list was
+     * replaced.
+     *
+     * @param generation the scan generation of the folder; if a different folder has been opened since, nothing
+     *            happens
+     * @param initial true if nothing has been loaded from the previous list
+     * @param sameNeighbourhood true if the images in the buffers are still valid
+     */
+    private void showUpdatedFiles(int generation, boolean initial, boolean sameNeighbourhood) {
+        if (generation != scanGeneration.get()) {
+            return;
+        }
+        int idx;
+        int n;
+        synchronized (mutex) {
+            idx = fileIndex;
+            n = numFiles;
+        }
+        if (initial) {
+            startLoading();
+        } else if (!sameNeighbourhood) {
+            // the images that are still in the list are taken from the image cache
+            moveToIndex(idx);
+        } else {
+            final File loaded = loadedFile;
+            if (loaded != null) {
+                toolbar.setImageInfo(loaded.getAbsolutePath(),idx,n);
+            }
+            prefetchFiles(idx,true);
+        }
+    }
+
+    /**
+     * Start loading the images around the current file index if the viewer is visible.
+     */
+    private void startLoading() {
         currentHeight = getHeight();
         currentWidth = getWidth();
         if (currentWidth != 0 && currentHeight != 0 && numFiles > 0) {
             fullyLoaded.compareAndSet(true,false);
             loaded.compareAndSet(true,false);
             initialLoad();
+            prefetchFiles(fileIndex,true);
         }
     }
 
-    private void stopAllImageLoading() {
-        wheelInMotion.compareAndSet(true,false);
-        synchronized (this) {
-            if (worker != null) {
-                worker.shutdownNow();
-                worker = null;
-            }
-            if (mtImageLoader != null) {
-                mtImageLoader.shutdownNow();
-                mtImageLoader = null;
-            }
-            if (imageReloader != null) {
-                imageReloader.shutdownNow();
-                imageReloader = null;
+    /**
+     * Returns the files, which are most likely next to the given file when the folder is sorted. Those can only be
+     * guessed when sorting by name: the files with the number in the name increased or decreased by one, if they
+     * exist. The returned files are sorted.
+     *
+     * @param file the file
+     * @return the file and its neighbours
+     */
+    private File[] guessNeighbours(File file) {
+        List<File> neighbours = new ArrayList<>(BUFFER_SIZE);
+        neighbours.add(file);
+        String name = file.getName();
+        int end = name.lastIndexOf('.');
+        if (end < 0) {
+            end = name.length();
+        }
+        int start = end;
+        while (start > 0 && Character.isDigit(name.charAt(start - 1))) {
+            start--;
+        }
+        if ((sorting == Sorting.NAME || sorting == Sorting.NATURAL_NAME) && start < end && end - start < 10) {
+            long number = Long.parseLong(name.substring(start,end));
+            String format = "%0" + (end - start) + "d";
+            for (int direction = -1; direction <= 1; direction += 2) {
+                for (int i = 1; i <= PRELOADING_BUFFER && number + direction * i >= 0; i++) {
+                    String neighbour = name.substring(0,start) + String.format(format,number + direction * i)
+                            + name.substring(end);
+                    File f = new File(file.getParentFile(),neighbour);
+                    if (!f.isFile()) {
+                        break;
+                    }
+                    neighbours.add(f);
+                }
             }
         }
+        File[] result = neighbours.toArray(new File[neighbours.size()]);
+        sorting.sort(result,null);
+        return result;
+    }
+
+    private static File at(File[] files, int index) {
+        return index < 0 || index >= files.length ? null : files[index];
+    }
+
+    private void stopAllImageLoading() {
+        stopImageLoading(index -> false);
+        // the decoders ignore interrupts, so abort the obsolete decodes explicitly
+        ImageReaders.abortAll();
+    }
+
+    /**
+     * Cancels all pending image loading tasks, except the loading of the images that are still relevant. The
+     * executors are not shut down, so no threads need to be created when the loading continues.
+     *
+     * @param relevant the predicate which receives the file index and returns true if the image that is being loaded
+     *            for that index should still be loaded
+     */
+    private void stopImageLoading(IntPredicate relevant) {
+        wheelInMotion.compareAndSet(true,false);
+        worker.cancelAll();
+        mtImageLoader.cancelAll();
+        imageReloader.cancelAll();
+        readAheadLoader.cancelAll();
+        slotLoader.retain(relevant);
+        readAhead.reset();
+        filePrefetcher.cancel();
+        displayGeneration.incrementAndGet();
         lastLoadedId = fileIndex;
         fastReadBuffer.clear();
     }
 
     private void increaseByStep(boolean forward) {
-        stopAllImageLoading();
         int idx;
         synchronized (mutex) {
             idx = fileIndex;
@@ -970,41 +1327,51 @@ public class Viewer extends JPanel {
     }
 
     private void moveToIndex(int idx) {
-        if (numFiles == 0) return;
-        int index = idx;
-        if (index >= numFiles) {
-            index = numFiles - 1;
-        } else if (index < 0) {
-            index = 0;
-        }
-        stopAllImageLoading();
+        final int index;
+        final int[] window;
+        final boolean forward;
+        final int cycleLength;
+        // the index is clamped and the window computed under the same lock as the list of files is replaced, so the
+        // indices are always valid for the list that they are applied to
         synchronized (mutex) {
+            if (numFiles == 0) return;
+            index = Math.max(0,Math.min(idx,numFiles - 1));
+            window = getBufferFileIndices(index);
+            forward = index >= fileIndex;
+            cycleLength = cycleWhenAtEnd ? numFiles : 0;
             fileIndex = index;
             loadedFile = files[index];
-            if (cycleWhenAtEnd) {
-                for (int i = 0; i < BUFFER_SIZE; i++) {
-                    int a = (index + i - PRELOADING_BUFFER) % numFiles;
-                    if (a < 0) a += numFiles;
-                    imageFiles[i] = files[a];
-                }
-            } else {
-                if (index >= PRELOADING_BUFFER && index < numFiles - PRELOADING_BUFFER) {
-                    for (int i = 0; i < BUFFER_SIZE && i < numFiles; i++) {
-                        imageFiles[i] = files[index + i - PRELOADING_BUFFER];
-                    }
-                } else if (index < PRELOADING_BUFFER) {
-                    for (int i = 0; i < BUFFER_SIZE && i < numFiles; i++) {
-                        imageFiles[i] = files[i];
-                    }
-                } else if (index >= numFiles - PRELOADING_BUFFER) {
-                    int k = numFiles >= BUFFER_SIZE ? numFiles - BUFFER_SIZE : 0;
-                    for (int i = 0; i < BUFFER_SIZE && i < numFiles; i++) {
-                        imageFiles[i] = files[k + i];
-                    }
-                }
+            // the slots that already hold the right file are kept
+            for (int i = 0; i < window.length; i++) {
+                slots.setFile(i,files[window[i]]);
             }
         }
+        // the images that are being loaded for the new buffers are kept loading, everything else is cancelled
+        slotLoader.setPosition(index,forward,cycleLength);
+        stopImageLoading(i -> Arrays.stream(window).anyMatch(w -> w == i));
         reloadImages();
+        prefetchFiles(index,true);
+    }
+
+    /**
+     * Returns the indices of the files that are in the image buffers when the file at the given index is displayed.
+     * The indices are ordered by the buffer index.
+     *
+     * @param index the index of the displayed file
+     * @return the file indices of the buffers
+     */
+    private int[] getBufferFileIndices(int index) {
+        int n = cycleWhenAtEnd ? BUFFER_SIZE : Math.min(BUFFER_SIZE,numFiles);
+        int start = index - PRELOADING_BUFFER;
+        if (!cycleWhenAtEnd) {
+            start = Math.max(0,Math.min(start,numFiles - BUFFER_SIZE));
+        }
+        int[] indices = new int[n];
+        for (int i = 0; i < n; i++) {
+            indices[i] = (start + i) % numFiles;
+            if (indices[i] < 0) indices[i] += numFiles;
+        }
+        return indices;
     }
 
     /**
@@ -1026,7 +1393,7 @@ public class Viewer extends JPanel {
         if (canvas.isInTransition()) {
             canvas.skipTransition();
         } else {
-            getWorker().execute(() -> {
+            worker.execute(() -> {
                 int idx = showNextImage(forward,fast);
                 if (idx == -1) return;
                 idx = (forward ? idx - 1 : idx + 1);
@@ -1038,6 +1405,11 @@ public class Viewer extends JPanel {
                     playSoundIfEndOfCycle();
                 }
                 updateImageBuffers(idx,forward,fast);
+                prefetchFiles(forward ? idx + 1 : idx - 1,forward);
+                if (!fast) {
+                    readAhead.advanced(forward);
+                    readAhead(forward ? idx + 1 : idx - 1,forward);
+                }
             });
         }
     }
@@ -1088,27 +1460,88 @@ public class Viewer extends JPanel {
                 }
             }
         }
-        final BufferedImage scaled, profiled, original;
-        final EXIFData exifData;
-        final File file;
+        final ImageSlot slot = slots.get(index);
         synchronized (mutex) {
-            loadedFile = imageFiles[index];
-            original = originalImages[index];
-            profiled = images[index];
-            scaled = scaledImages[index];
-            exifData = exif[index];
+            loadedFile = slot.file;
             fileIndex = indexOf(loadedFile,files,fileIndex,true);
             idx = fileIndex;
-            file = loadedFile;
         }
-        if (profiled == null) {
+        if (slot.profiledImage == null) {
             advanceImage(forward,fast);
             return -1;
         }
-        applyImage(file,idx,original,profiled,scaled,exifData,true,forward,fast);
+        displayGeneration.incrementAndGet();
+        applyImage(slot,idx,true,forward,fast);
         return idx;
     }
 
+    /**
+     * Loads the images beyond the image buffers into the image cache in the direction of travel. The number of loaded
+     * images is provided by the {@link ReadAhead}. Images that were scheduled for the previous position, but have not
+     * been loaded yet, are discarded.
+     *
+     * @param idx the index of the currently displayed image
+     * @param forward true if moving forward or false if moving backward
+     */
+    private void readAhead(int idx, boolean forward) {
+        Runtime runtime = Runtime.getRuntime();
+        long heap = runtime.maxMemory() - runtime.totalMemory() + runtime.freeMemory();
+        int ahead = readAhead.getLookAhead(Math.min(imageCache.getMaxSize(),heap / 2));
+        readAheadLoader.getQueue().clear();
+        if (ahead <= PRELOADING_BUFFER) return;
+        final int width = canvas.getWidth();
+        final int height = canvas.getHeight();
+        final boolean scaleFast = !bestQualityScaling;
+        File[] theFiles;
+        int n;
+        synchronized (mutex) {
+            theFiles = files;
+            n = numFiles;
+        }
+        for (int i = PRELOADING_BUFFER + 1; i <= ahead; i++) {
+            int k = forward ? idx + i : idx - i;
+            if (cycleWhenAtEnd) {
+                k %= n;
+                if (k < 0) k += n;
+            } else if (k < 0 || k >= n) {
+                break;
+            }
+            final File file = theFiles[k];
+            readAheadLoader.execute(() -> {
+                if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
+                loadSlot(file,false,width,height,scaleFast);
+            });
+        }
+    }
+
+    /**
+     * Passes the files following the given index in the direction of travel to the file prefetcher, which reads them
+     * into the page cache, so that they can be decoded without waiting for the disk.
+     *
+     * @param idx the index of the currently displayed image
+     * @param forward true if moving forward or false if moving backward
+     */
+    private void prefetchFiles(int idx, boolean forward) {
+        File[] theFiles;
+        int n;
+        synchronized (mutex) {
+            theFiles = files;
+            n = numFiles;
+        }
+        List<File> toPrefetch = new ArrayList<>();
+        for (int i = 1; i < n && i <= MAX_PREFETCH_FILES; i++) {
+            int k = forward ? idx + i : idx - i;
+            if (cycleWhenAtEnd) {
+                k %= n;
+                if (k < 0) k += n;
+            } else if (k < 0 || k >= n) {
+                break;
+            }
+            toPrefetch.add(theFiles[k]);
+        }
+        filePrefetcher.prefetch(toPrefetch);
+    }
+
     /**
      * Updates the image buffers, by loading the next or previous image to fill in the void in the buffer. If multiple
      * cores are used and fast parameter is true, this method loads several images concurrently for fastest performance.
@@ -1131,16 +1564,6 @@ public class Viewer extends JPanel {
             // If not at the end of the list, check if there are any remaining
             // files to load or if all are already in the buffer
             if (cycleWhenAtEnd || (idx < numFiles - PRELOADING_BUFFER - 1 && idx >= PRELOADING_BUFFER)) {
-                synchronized (mutex) {
-                    // Rotate the buffers
-                    for (int i = 0; i < BUFFER_SIZE - 1; i++) {
-                        imageFiles[i] = imageFiles[i + 1];
-                        originalImages[i] = originalImages[i + 1];
-                        images[i] = images[i + 1];
-                        scaledImages[i] = scaledImages[i + 1];
-                        exif[i] = exif[i + 1];
-                    }
-                }
                 // Check if we reach the end and play the sound.
                 if (idx + 1 >= numFiles) {
                     playSoundIfEndOfCycle();
@@ -1151,35 +1574,29 @@ public class Viewer extends JPanel {
                     a += numFiles;
                 }
                 File file = files[a];
+                // Rotate the buffers; the new file enters at the end
+                slots.rotate(true,file);
                 if (fast) {
                     // In fast image loading (mouse scrolling), get the latest from the buffer and fill up the read
                     // buffer with new images
                     ImageFile imf = null;
                     if (useMulticore) {
                         if (waitForImagesToLoadWhenScrolling) {
-                            // If waiting for images, take the first image, and remove all others
-                            // The first image might not be always the first one that follows the current.
-                            // If Next image is huge and the one after very small, the one after might be loaded first,
-                            // which means that it will also be shown.
-                            imf = fastReadBuffer.removeFirst();
-                            while (imf != null && imf.id <= a) {
-                                imf = fastReadBuffer.removeFirst();
-                            }
+                            // If waiting for images, take the first image that is being loaded for this or any of the
+                            // following indices and drop the older ones. If that image is still loading, wait for it.
+                            imf = fastReadBuffer.awaitNext(a - 1,true);
                         } else {
-                            // Otherwise shutdown the loader, we will restart it, and take the last image from the
-                            // buffer
-                            synchronized (Viewer.this) {
-                                getMTImageLoader().shutdown();
-                                mtImageLoader = null;
-                            }
-                            imf = fastReadBuffer.removeLast();
+                            // Otherwise cancel the images that are behind and take the last image from the buffer
+                            final int current = a;
+                            slotLoader.retain(index -> isAhead(index,current,true));
+                            imf = fastReadBuffer.pollLatest(true);
                             fastReadBuffer.clear();
                         }
                         if (fastReadBuffer.size() <= FAST_READ_BUFFER_MIN) {
                             // Fill up the buffer with as many images as there is free room, taking into consideration
                             // the number of cores
                             int fastReadFileIndex = fastReadBuffer.isEmpty() ? idx + 2 + PRELOADING_BUFFER
-                                    : fastReadBuffer.getLast().id + 1;
+                                    : fastReadBuffer.lastId() + 1;
                             for (int i = 0; i < NUM_CORES - 1; i++) {
                                 int m = fastReadFileIndex + i;
                                 if (lastLoadedId >= m) {
@@ -1192,46 +1609,20 @@ public class Viewer extends JPanel {
                                 }
                                 final int k = m;
                                 lastLoadedId = k;
-                                getMTImageLoader().execute(() -> {
-                                    EXIFImage loadedImage = loadImage(files[k],loadFast);
-                                    if (Thread.currentThread().isInterrupted()) return;
-                                    ImageFile f = new ImageFile(files[k],loadedImage,k);
-                                    if (waitForImagesToLoadWhenScrolling) {
-                                        try {
-                                            synchronized (fastReadBuffer) {
-                                                ImageFile ff = fastReadBuffer.getLast();
-                                                if (Thread.currentThread().isInterrupted()) return;
-                                                if (ff != null && ff.id == f.id - 1) {
-                                                    fastReadBuffer.add(f);
-                                                } else {
-                                                    fastReadBuffer.wait(1);
-                                                }
-                                            }
-                                        } catch (InterruptedException e) {
-                                            Thread.currentThread().interrupt();
-                                            return;
-                                        }
-                                    } else {
-                                        fastReadBuffer.add(f);
-                                    }
-                                });
+                                loadIntoFastReadBuffer(files[k],k,loadFast,width,height,scaleFast);
                             }
                         }
                     }
                     if (imf == null) {
                         // Do not parallelize or no image ready yet.
-                        EXIFImage loadedImage = loadImage(file,loadFast);
-                        scaleAndSet(file,loadedImage.originalImage,loadedImage.profiledImage,loadedImage.data,width,
-                                height,scaleFast,BUFFER_SIZE - 1);
+                        setSlot(BUFFER_SIZE - 1,loadSlot(file,loadFast,width,height,scaleFast));
                     } else {
-                        scaleAndSet(imf.file,imf.originalImage,imf.profiledImage,imf.exif,width,height,scaleFast,
-                                BUFFER_SIZE - 1);
+                        scaleAndSet(imf.file,imf.originalImage,imf.profiledImage,imf.exif,width,height,loadFast,
+                                scaleFast,BUFFER_SIZE - 1);
                     }
                 } else {
                     //slow scrolling, fast == false
-                    EXIFImage loadedImage = loadImage(file,false);
-                    scaleAndSet(file,loadedImage.originalImage,loadedImage.profiledImage,loadedImage.data,width,height,
-                            !bestQualityScaling,BUFFER_SIZE - 1);
+                    setSlot(BUFFER_SIZE - 1,loadSlot(file,false,width,height,!bestQualityScaling));
                 }
             }
         } else {
@@ -1240,15 +1631,6 @@ public class Viewer extends JPanel {
                 return;
             }
             if (cycleWhenAtEnd || (idx > PRELOADING_BUFFER && idx <= numFiles - PRELOADING_BUFFER - 1)) {
-                synchronized (mutex) {
-                    for (int i = BUFFER_SIZE - 1; i > 0; i--) {
-                        imageFiles[i] = imageFiles[i - 1];
-                        originalImages[i] = originalImages[i - 1];
-                        images[i] = images[i - 1];
-                        scaledImages[i] = scaledImages[i - 1];
-                        exif[i] = exif[i - 1];
-                    }
-                }
                 if (idx - 1 < 0) {
                     playSoundIfEndOfCycle();
                 }
@@ -1257,25 +1639,21 @@ public class Viewer extends JPanel {
                     a += numFiles;
                 }
                 File file = files[a];
+                slots.rotate(false,file);
                 if (fast) {
                     ImageFile imf = null;
                     if (useMulticore) {
                         if (waitForImagesToLoadWhenScrolling) {
-                            imf = fastReadBuffer.removeLast();
-                            while (imf != null && imf.id >= a) {
-                                imf = fastReadBuffer.removeLast();
-                            }
+                            imf = fastReadBuffer.awaitNext(a + 1,false);
                         } else {
-                            synchronized (Viewer.this) {
-                                getMTImageLoader().shutdown();
-                                mtImageLoader = null;
-                            }
-                            imf = fastReadBuffer.removeFirst();
+                            final int current = a;
+                            slotLoader.retain(index -> isAhead(index,current,false));
+                            imf = fastReadBuffer.pollLatest(false);
                             fastReadBuffer.clear();
                         }
                         if (fastReadBuffer.size() <= FAST_READ_BUFFER_MIN) {
                             int fastReadFileIndex = fastReadBuffer.isEmpty() ? idx - 2 - PRELOADING_BUFFER
-                                    : fastReadBuffer.getFirst().id - 1;
+                                    : fastReadBuffer.firstId() - 1;
                             for (int i = 0; i < NUM_CORES - 1; i++) {
                                 int m = fastReadFileIndex - i;
                                 if (lastLoadedId <= m) continue;
@@ -1289,64 +1667,82 @@ public class Viewer extends JPanel {
                                 }
                                 final int k = m;
                                 lastLoadedId = m;
-                                getMTImageLoader().execute(() -> {
-                                    EXIFImage loadedImage = loadImage(files[k],loadFast);
-                                    if (Thread.currentThread().isInterrupted()) return;
-                                    ImageFile f = new ImageFile(files[k],loadedImage,k);
-                                    if (waitForImagesToLoadWhenScrolling) {
-                                        try {
-                                            synchronized (fastReadBuffer) {
-                                                ImageFile ff = fastReadBuffer.getFirst();
-                                                if (Thread.currentThread().isInterrupted()) return;
-                                                if (ff != null && ff.id == f.id + 1) {
-                                                    fastReadBuffer.add(f);
-                                                } else {
-                                                    fastReadBuffer.wait(1);
-                                                }
-                                            }
-                                        } catch (InterruptedException e) {
-                                            Thread.currentThread().interrupt();
-                                            return;
-                                        }
-                                    } else {
-                                        fastReadBuffer.add(f);
-                                    }
-                                });
+                                loadIntoFastReadBuffer(files[k],k,loadFast,width,height,scaleFast);
                             }
                         }
                     }
                     if (imf == null) {
                         //in backward direction, we always update the 0 buffer index
-                        EXIFImage loadedImage = loadImage(file,loadFast);
-                        scaleAndSet(file,loadedImage.originalImage,loadedImage.profiledImage,loadedImage.data,width,
-                                height,scaleFast,0);
+                        setSlot(0,loadSlot(file,loadFast,width,height,scaleFast));
                     } else {
                         //in backward direction, we always update the 0 buffer index
-                        scaleAndSet(imf.file,imf.originalImage,imf.profiledImage,imf.exif,width,height,scaleFast,0);
+                        scaleAndSet(imf.file,imf.originalImage,imf.profiledImage,imf.exif,width,height,loadFast,
+                                scaleFast,0);
                     }
                 } else {
                     //slow loading
                     //in backward direction, we always update the 0 buffer index
-                    EXIFImage loadedImage = loadImage(file,false);
-                    scaleAndSet(file,loadedImage.originalImage,loadedImage.profiledImage,loadedImage.data,width,height,
-                            !bestQualityScaling,0);
+                    setSlot(0,loadSlot(file,false,width,height,!bestQualityScaling));
                 }
             }
         }
     }
 
+    /**
+     * Puts the loaded slot into the image buffers at the given index. If the loading was cancelled (the slot is null),
+     * the index keeps the empty slot for the file, which is loaded again when the buffers are rescaled or reloaded.
+     *
+     * @param index the buffer index
+     * @param slot the loaded slot or null if the loading was cancelled
+     */
+    private void setSlot(int index, ImageSlot slot) {
+        if (slot != null) {
+            slots.set(index,slot);
+        }
+    }
+
+    /**
+     * Returns true if the file index is ahead of the reference index in the direction of travel (by at most half of
+     * the files, when cycling).
+     *
+     * @param index the index to check
+     * @param reference the reference index
+     * @param forward true if moving forward or false if moving backward
+     * @return true if the index is ahead of the reference
+     */
+    private boolean isAhead(int index, int reference, boolean forward) {
+        int distance = (forward ? index - reference : reference - index) % numFiles;
+        if (distance < 0) distance += numFiles;
+        return distance > 0 && distance <= numFiles / 2;
+    }
+
+    /**
+     * Loads the image for the fast read buffer. The image is announced in the buffer before it starts loading, so that
+     * the consumer can wait for it, and it is always completed, even if the loading was cancelled.
+     *
+     * @param file the file to load
+     * @param id the index of the file
+     * @param loadFast true to load the image fast or false to load it in full quality
+     * @param width the width of the canvas
+     * @param height the height of the canvas
+     * @param scaleFast true to use fast scaling or false for high quality scaling
+     */
+    private void loadIntoFastReadBuffer(File file, int id, boolean loadFast, int width, int height,
+            boolean scaleFast) {
+        fastReadBuffer.begin(id);
+        slotLoader.load(id,file,loadFast,width,height,scaleFast).whenComplete((slot, e) -> fastReadBuffer.complete(id,
+                slot == null ? null : new ImageFile(file,slot.originalImage,slot.profiledImage,slot.exif,id)));
+    }
+
     private void scaleAndSet(File file, BufferedImage original, BufferedImage profiledImage, EXIFData data, int width,
-            int height, boolean scaleFast, int destIndex) {
+            int height, boolean fast, boolean scaleFast, int destIndex) {
         // convenience method to avoid repetitive code
-        // Scale the profiled image and set it on the buffers
-        BufferedImage scaled = getScaledImage(profiledImage,width,height,scaleFast);
-        synchronized (mutex) {
-            imageFiles[destIndex] = file;
-            originalImages[destIndex] = original;
-            images[destIndex] = profiledImage;
-            scaledImages[destIndex] = scaled;
-            exif[destIndex] = data;
+        // Scale the profiled image (unless already scaled and cached) and set it on the buffers
+        ImageSlot slot = imageCache.get(file,width,height,toQuality(fast,scaleFast));
+        if (slot == null || slot.profiledImage != profiledImage) {
+            slot = createSlot(file,original,profiledImage,data,width,height,fast,scaleFast);
         }
+        slots.set(destIndex,slot);
     }
 
     /**
@@ -1359,7 +1755,7 @@ public class Viewer extends JPanel {
             if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
             idx = fileIndex;
         }
-        getWorker().execute(() -> {
+        worker.execute(() -> {
             if (useMulticore) {
                 initialLoadMT(idx);
             } else {
@@ -1385,92 +1781,78 @@ public class Viewer extends JPanel {
         // load the first image as quickly as possible
         File file;
         synchronized (mutex) {
-            imageFiles[index] = files[idx];
             for (int i = 0; i < BUFFER_SIZE; i++) {
-                if (i == index) continue;
                 int k = (idx + i - index) % numFiles;
                 if (k < 0) k += numFiles;
-                imageFiles[i] = files[k];
+                slots.setFile(i,files[k]);
             }
-            file = imageFiles[index];
-        }
-        EXIFImage firstImage = loadImage(file,true);
-        width = canvas.getWidth();
-        height = canvas.getHeight();
-        BufferedImage scaledImage = getScaledImage(firstImage.profiledImage,width,height,true);
-        synchronized (mutex) {
-            originalImages[index] = firstImage.originalImage;
-            images[index] = firstImage.profiledImage;
-            scaledImages[index] = scaledImage;
-            exif[index] = firstImage.data;
+            file = files[idx];
         }
+        ImageSlot firstImage = loadSlot(file,true,width,height,true);
+        slots.set(index,firstImage);
         loadedFile = file;
         fileIndex = idx;
-        applyImage(loadedFile,idx,firstImage.originalImage,firstImage.profiledImage,scaledImage,firstImage.data,false,
-                true,true);
+        applyImage(firstImage,idx,false,true,true);
         loaded.compareAndSet(false,true);
         if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-        EXIFImage[] loadedImages = new EXIFImage[BUFFER_SIZE];
-        BufferedImage[] scaledLoadedImages = new BufferedImage[BUFFER_SIZE];
-        File[] loadedFiles = new File[BUFFER_SIZE];
+        ImageSlot[] loadedSlots = new ImageSlot[BUFFER_SIZE];
         if (cycleWhenAtEnd) {
             for (int i = 0; i < BUFFER_SIZE; i++) {
                 if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
                 int k = (idx - index + i) % numFiles;
                 if (k < 0) k += numFiles;
-                loadedFiles[i] = files[k];
-                loadedImages[i] = loadImage(loadedFiles[i],false);
-                if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
                 width = canvas.getWidth();
                 height = canvas.getHeight();
-                scaledLoadedImages[i] = getScaledImage(loadedImages[i].profiledImage,width,height,!bestQualityScaling);
+                loadedSlots[i] = loadSlot(files[k],false,width,height,!bestQualityScaling);
+                if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
                 if (i == index) {
-                    applyImage(loadedFiles[i],k,loadedImages[i].originalImage,loadedImages[i].profiledImage,
-                            scaledLoadedImages[i],loadedImages[i].data,false,true,false);
+                    applyImage(loadedSlots[i],k,false,true,false);
                 }
             }
         } else {
             for (int i = 0; i < BUFFER_SIZE && i < numFiles; i++) {
                 if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
                 int k = idx - index + i;
-                loadedFiles[i] = files[k];
-                loadedImages[i] = loadImage(loadedFiles[i],false);
-                if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
                 width = canvas.getWidth();
                 height = canvas.getHeight();
-                scaledLoadedImages[i] = getScaledImage(loadedImages[i].profiledImage,width,height,!bestQualityScaling);
+                loadedSlots[i] = loadSlot(files[k],false,width,height,!bestQualityScaling);
+                if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
                 if (i == index) {
-                    applyImage(loadedFiles[i],idx,loadedImages[i].originalImage,loadedImages[i].profiledImage,
-                            scaledLoadedImages[i],loadedImages[i].data,false,true,false);
+                    applyImage(loadedSlots[i],idx,false,true,false);
                 }
             }
         }
-        boolean rescale = false;
-        synchronized (mutex) {
-            if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) {
-                fullyLoaded.compareAndSet(false,true);
-                return;
-            }
-            width = canvas.getWidth();
-            height = canvas.getHeight();
-            for (int i = 0; i < BUFFER_SIZE; i++) {
-                imageFiles[i] = loadedFiles[i];
-                originalImages[i] = loadedImages[i].originalImage;
-                images[i] = loadedImages[i].profiledImage;
-                scaledImages[i] = scaledLoadedImages[i];
-                exif[i] = loadedImages[i].data;
-                if (!rescale && scaledImages[i] != null
-                        && (scaledImages[i].getWidth() != width || scaledImages[i].getHeight() != height)) {
-                    rescale = true;
-                }
-            }
+        if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) {
             fullyLoaded.compareAndSet(false,true);
+            return;
         }
+        boolean rescale = putSlots(loadedSlots,canvas.getWidth(),canvas.getHeight());
+        fullyLoaded.compareAndSet(false,true);
         if (rescale) {
             scaleImages();
         }
     }
 
+    /**
+     * Puts the loaded slots into the image buffers at their indices. A slot is discarded if its index holds a
+     * different file, which happens if the buffers moved while the slot was being loaded.
+     *
+     * @param loadedSlots the slots ordered by the buffer index; the slots that were not loaded are null
+     * @param width the width of the canvas
+     * @param height the height of the canvas
+     * @return true if any of the slots was scaled for a different canvas size and needs to be rescaled
+     */
+    private boolean putSlots(ImageSlot[] loadedSlots, int width, int height) {
+        boolean rescale = false;
+        for (int i = 0; i < BUFFER_SIZE; i++) {
+            if (loadedSlots[i] == null || !slots.replace(i,loadedSlots[i])) continue;
+            if (loadedSlots[i].scaledImage != null && !loadedSlots[i].isScaledTo(width,height)) {
+                rescale = true;
+            }
+        }
+        return rescale;
+    }
+
     /**
      * Loads the first few images to fill up the buffer delegating this task to multiple threads to utilize all cores.
      *
@@ -1485,35 +1867,23 @@ public class Viewer extends JPanel {
             return;
         }
         final int index = getBufferIndexForFileIndex(idx);
-        final EXIFImage[] loadedImages = new EXIFImage[BUFFER_SIZE];
-        final BufferedImage[] scaledLoadedImages = new BufferedImage[BUFFER_SIZE];
-        final File[] loadedFiles = new File[BUFFER_SIZE];
+        final ImageSlot[] loadedSlots = new ImageSlot[BUFFER_SIZE];
         synchronized (mutex) {
             for (int i = 0; i < BUFFER_SIZE; i++) {
-                if (i == index) continue;
                 int k = (idx + i - index) % numFiles;
                 if (k < 0) k += numFiles;
-                imageFiles[i] = files[k];
+                slots.setFile(i,files[k]);
             }
         }
-        getMTImageLoader().execute(() -> {
+        mtImageLoader.execute(() -> {
             // do a fast load to show an image as quickly as possible
+            ImageSlot slot = loadSlot(files[idx],true,canvas.getWidth(),canvas.getHeight(),true);
+            slots.set(index,slot);
             synchronized (mutex) {
-                imageFiles[index] = files[idx];
-            }
-            EXIFImage imm = loadImage(files[idx],true);
-            int width = canvas.getWidth();
-            int height = canvas.getHeight();
-            BufferedImage im = getScaledImage(imm.profiledImage,width,height,true);
-            synchronized (mutex) {
-                originalImages[index] = imm.originalImage;
-                images[index] = imm.profiledImage;
-                scaledImages[index] = im;
-                exif[index] = imm.data;
                 loadedFile = files[idx];
             }
             fileIndex = idx;
-            applyImage(loadedFile,idx,imm.originalImage,imm.profiledImage,im,imm.data,false,true,true);
+            applyImage(slot,idx,false,true,true);
             loaded.compareAndSet(false,true);
         });
         // delegate image creation to multiple workers and wait for all images to be loaded
@@ -1525,22 +1895,16 @@ public class Viewer extends JPanel {
                 for (int i = 0; i < BUFFER_SIZE; i++) {
                     expected++;
                     final int k = i;
-                    getMTImageLoader().execute(() -> {
+                    mtImageLoader.execute(() -> {
                         if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
                         int a = (idx - index + k) % numFiles;
                         if (a < 0) a += numFiles;
-                        loadedFiles[k] = files[a];
-                        loadedImages[k] = loadImage(loadedFiles[k],false);
-                        if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-                        int width = canvas.getWidth();
-                        int height = canvas.getHeight();
-                        scaledLoadedImages[k] = getScaledImage(loadedImages[k].profiledImage,width,height,
+                        loadedSlots[k] = loadSlot(files[a],false,canvas.getWidth(),canvas.getHeight(),
                                 !bestQualityScaling);
+                        if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
                         if (k == index && loaded.get()) {
                             imageShown[0] = true;
-                            applyImage(loadedFiles[index],a,loadedImages[index].originalImage,
-                                    loadedImages[index].profiledImage,scaledLoadedImages[index],
-                                    loadedImages[index].data,false,true,false);
+                            applyImage(loadedSlots[index],a,false,true,false);
                         }
                         if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
                         synchronized (c) {
@@ -1554,20 +1918,14 @@ public class Viewer extends JPanel {
                     if (idx - index + i >= numFiles) break;
                     expected++;
                     final int k = i;
-                    getMTImageLoader().execute(() -> {
+                    mtImageLoader.execute(() -> {
                         if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-                        loadedFiles[k] = files[idx - index + k];
-                        loadedImages[k] = loadImage(loadedFiles[k],false);
-                        if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-                        int width = canvas.getWidth();
-                        int height = canvas.getHeight();
-                        scaledLoadedImages[k] = getScaledImage(loadedImages[k].profiledImage,width,height,
+                        loadedSlots[k] = loadSlot(files[idx - index + k],false,canvas.getWidth(),canvas.getHeight(),
                                 !bestQualityScaling);
+                        if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
                         if (k == index && loaded.get()) {
                             imageShown[0] = true;
-                            applyImage(loadedFiles[index],idx,loadedImages[index].originalImage,
-                                    loadedImages[index].profiledImage,scaledLoadedImages[index],
-                                    loadedImages[index].data,false,true,false);
+                            applyImage(loadedSlots[index],idx,false,true,false);
                         }
                         if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
                         synchronized (c) {
@@ -1584,33 +1942,15 @@ public class Viewer extends JPanel {
                 while (c[0] != min && !wheelInMotion.get() && !Thread.currentThread().isInterrupted()) {
                     c.wait(10);
                 }
-                if (!imageShown[0] && loadedImages[index] != null) {
-                    applyImage(loadedFiles[index],idx,loadedImages[index].originalImage,
-                            loadedImages[index].profiledImage,scaledLoadedImages[index],loadedImages[index].data,false,
-                            true,false);
+                if (!imageShown[0] && loadedSlots[index] != null) {
+                    applyImage(loadedSlots[index],idx,false,true,false);
                 }
-                boolean rescale = false;
-                synchronized (mutex) {
-                    if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) {
-                        fullyLoaded.compareAndSet(false,true);
-                        return;
-                    }
-                    int width = canvas.getWidth();
-                    int height = canvas.getHeight();
-                    for (int i = 0; i < BUFFER_SIZE; i++) {
-                        if (loadedImages[i] == null) continue;
-                        imageFiles[i] = loadedFiles[i];
-                        originalImages[i] = loadedImages[i].originalImage;
-                        images[i] = loadedImages[i].profiledImage;
-                        scaledImages[i] = scaledLoadedImages[i];
-                        exif[i] = loadedImages[i].data;
-                        if (!rescale && scaledImages[i] != null
-                                && (scaledImages[i].getWidth() != width || scaledImages[i].getHeight() != height)) {
-                            rescale = true;
-                        }
-                    }
+                if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) {
                     fullyLoaded.compareAndSet(false,true);
+                    return;
                 }
+                boolean rescale = putSlots(loadedSlots,canvas.getWidth(),canvas.getHeight());
+                fullyLoaded.compareAndSet(false,true);
                 if (rescale) {
                     scaleImages();
                 }
@@ -1635,11 +1975,12 @@ public class Viewer extends JPanel {
     }
 
     /**
-     * Rescale images in the current image buffer to the fit size.
+     * Rescale images in the current image buffer to the fit size. The images of the slots that were left empty,
+     * because their loading was cancelled, are loaded.
      */
     public void scaleImages() {
         if (wheelInMotion.get()) return;
-        getImageReloader().execute(() -> {
+        imageReloader.execute(() -> {
             if (useMulticore) {
                 scaleImagesMT();
             } else {
@@ -1657,37 +1998,19 @@ public class Viewer extends JPanel {
         int height = canvas.getHeight();
         int index;
         int fIndex;
-        final BufferedImage profiledImage, orgiginalImage;
-        final File file;
-        final EXIFData exifData;
         synchronized (mutex) {
             if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
             index = getBufferIndexForFileIndex(fileIndex);
-            file = imageFiles[index];
-            orgiginalImage = originalImages[index];
-            profiledImage = images[index];
-            exifData = exif[index];
             fIndex = fileIndex;
         }
-        final BufferedImage scaledImage = getScaledImage(profiledImage,width,height,!bestQualityScaling);
-        synchronized (mutex) {
-            if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-            scaledImages[index] = scaledImage;
+        ImageSlot slot = rescaleSlot(index,width,height);
+        if (slot != null) {
+            applyImage(slot,fIndex,false,true,false);
         }
-        applyImage(file,fIndex,orgiginalImage,profiledImage,scaledImage,exifData,false,true,false);
-        BufferedImage image;
         for (int i = 0; i < BUFFER_SIZE; i++) {
             if (i == index) continue;
-            synchronized (mutex) {
-                if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-                image = images[i];
-            }
-            if (image == null) continue;
-            image = getScaledImage(image,width,height,!bestQualityScaling);
-            synchronized (mutex) {
-                if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-                scaledImages[i] = image;
-            }
+            if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
+            rescaleSlot(i,width,height);
         }
     }
 
@@ -1704,41 +2027,84 @@ public class Viewer extends JPanel {
             in = fileIndex;
         }
         final int index = getBufferIndexForFileIndex(in);
-        final BufferedImage profiledImage, originalImage;
-        final File file;
-        final EXIFData exifData;
-        synchronized (mutex) {
-            if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-            file = imageFiles[index];
-            originalImage = originalImages[index];
-            profiledImage = images[index];
-            exifData = exif[index];
-        }
-        getMTImageLoader().execute(() -> {
-            final BufferedImage im = getScaledImage(profiledImage,width,height,!bestQualityScaling);
-            synchronized (mutex) {
-                if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-                scaledImages[index] = im;
+        mtImageLoader.execute(() -> {
+            ImageSlot slot = rescaleSlot(index,width,height);
+            if (slot != null) {
+                applyImage(slot,in,false,true,false);
             }
-            applyImage(file,in,originalImage,profiledImage,im,exifData,false,true,false);
         });
         for (int i = 0; i < BUFFER_SIZE; i++) {
             if (i == index) continue;
             final int k = i;
-            getMTImageLoader().execute(() -> {
-                BufferedImage scaledImage;
-                synchronized (mutex) {
-                    if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-                    scaledImage = images[k];
-                }
-                if (scaledImage == null) return;
-                scaledImage = getScaledImage(scaledImage,width,height,!bestQualityScaling);
-                synchronized (mutex) {
-                    if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-                    scaledImages[k] = scaledImage;
-                }
-            });
+            mtImageLoader.execute(() -> rescaleSlot(k,width,height));
+        }
+    }
+
+    /**
+     * Scales the profiled image in the slot at the given buffer index to the canvas size and swaps the rescaled slot
+     * into the buffers. If the slot was replaced while the image was being scaled, the rescaled slot is discarded. If
+     * the slot is empty, its image is loaded instead (see {@link #fillSlot(int, int, int)}).
+     *
+     * @param index the buffer index of the slot
+     * @param width the width of the canvas
+     * @param height the height of the canvas
+     * @return the rescaled slot or null if the slot has no file, the scaling was cancelled or the slot was replaced
+     */
+    private ImageSlot rescaleSlot(int index, int width, int height) {
+        if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return null;
+        ImageSlot slot = slots.get(index);
+        if (slot.profiledImage == null) {
+            // the loading of the slot was cancelled when the loading was stopped, so there is nothing to rescale
+            return fillSlot(index,width,height);
         }
+        boolean scaleFast = !bestQualityScaling;
+        ImageSlot scaled = slot.withScaledImage(getScaledImage(slot.profiledImage,width,height,scaleFast),width,
+                height,scaleFast);
+        if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return null;
+        return slots.compareAndSet(index,slot,scaled) ? scaled : null;
+    }
+
+    /**
+     * Loads the images for the slots in the current image buffer that were left empty, because their loading was
+     * cancelled. The slots that contain an image are not touched.
+     */
+    private void reloadEmptySlots() {
+        if (numFiles == 0 || !loaded.get()) return;
+        imageReloader.execute(() -> {
+            if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
+            int width = canvas.getWidth();
+            int height = canvas.getHeight();
+            int index;
+            int fIndex;
+            synchronized (mutex) {
+                index = getBufferIndexForFileIndex(fileIndex);
+                fIndex = fileIndex;
+            }
+            for (int i = 0; i < BUFFER_SIZE; i++) {
+                ImageSlot slot = fillSlot(i,width,height);
+                if (slot != null && i == index) {
+                    applyImage(slot,fIndex,false,true,false);
+                }
+            }
+        });
+    }
+
+    /**
+     * Loads the image for the slot at the given buffer index, if the slot is empty, and swaps the loaded slot into the
+     * buffers. If the slot was replaced while the image was being loaded, the loaded slot is discarded.
+     *
+     * @param index the buffer index of the slot
+     * @param width the width of the canvas
+     * @param height the height of the canvas
+     * @return the loaded slot or null if the slot is not empty, the loading was cancelled or the slot was replaced
+     */
+    private ImageSlot fillSlot(int index, int width, int height) {
+        if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return null;
+        ImageSlot slot = slots.get(index);
+        if (slot.file == null || slot.profiledImage != null) return null;
+        ImageSlot loaded = loadSlot(slot.file,false,width,height,!bestQualityScaling);
+        if (loaded == null || wheelInMotion.get() || Thread.currentThread().isInterrupted()) return null;
+        return slots.compareAndSet(index,slot,loaded) ? loaded : null;
     }
 
     /**
@@ -1750,7 +2116,7 @@ public class Viewer extends JPanel {
         if (!loaded.get()) return;
         final int width = canvas.getWidth();
         final int height = canvas.getHeight();
-        getImageReloader().execute(() -> {
+        imageReloader.execute(() -> {
             if (!loaded.get()) return;
             if (useMulticore) {
                 reloadImagesMT(width,height);
@@ -1762,7 +2128,7 @@ public class Viewer extends JPanel {
 
     /**
      * Reloads images in the current image buffer and scales them to working size, preserving aspect ratio. The method
-     * uses multiple threads to utilize all available cores.
+     * uses multiple threads to utilize all available cores. Images that are in the image cache are not reloaded.
      *
      * @param width the width of the canvas, to which the image is scaled
      * @param height the height of the canvas, to which the image is scaled
@@ -1776,105 +2142,60 @@ public class Viewer extends JPanel {
         }
         int[] idx = { in };
         int[] index = { getBufferIndexForFileIndex(in) };
-        final EXIFImage[] loadedImages = new EXIFImage[BUFFER_SIZE];
-        final BufferedImage[] scaledLoadedImages = new BufferedImage[BUFFER_SIZE];
-        final File[] fis = new File[BUFFER_SIZE];
-        getMTImageLoader().execute(() -> {
+        final ImageSlot[] loadedSlots = new ImageSlot[BUFFER_SIZE];
+        final int generation = displayGeneration.get();
+        mtImageLoader.execute(() -> {
             File file;
             synchronized (mutex) {
                 if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
                 file = loadedFile;
             }
-            final EXIFImage loadedImage = loadImage(file,false);
-            if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-            final BufferedImage scaledImage = getScaledImage(loadedImage.profiledImage,width,height,!bestQualityScaling);
+            final ImageSlot slot = loadProgressively(file,idx[0],width,height,generation);
+            if (slot == null || wheelInMotion.get()) return;
             int i;
             synchronized (mutex) {
-                if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-                imageFiles[index[0]] = file;
-                originalImages[index[0]] = loadedImage.originalImage;
-                images[index[0]] = loadedImage.profiledImage;
-                scaledImages[index[0]] = scaledImage;
-                exif[index[0]] = loadedImage.data;
+                if (wheelInMotion.get() || Thread.currentThread().isInterrupted()
+                        || generation != displayGeneration.get()) return;
                 loadedFile = file;
                 fileIndex = indexOf(loadedFile,files,fileIndex,true);
                 i = fileIndex;
             }
-            applyImage(file,i,loadedImage.originalImage,loadedImage.profiledImage,scaledImage,loadedImage.data,false,
-                    true,false);
-            loadedImages[index[0]] = loadedImage;
-            scaledLoadedImages[index[0]] = scaledImage;
-            fis[index[0]] = file;
+            slots.replace(index[0],slot);
+            applyImage(slot,i,false,true,false);
+            loadedSlots[index[0]] = slot;
         });
-        int[] c = { 0 };
-        synchronized (c) {
-            int expected = 0;
+        // request the neighbours from the loading service; the ones that are already being loaded are reused
+        List<CompletableFuture<ImageSlot>> loads = new ArrayList<>(BUFFER_SIZE);
+        for (int i = 0; i < BUFFER_SIZE && (cycleWhenAtEnd || i < numFiles); i++) {
+            int d = idx[0] - index[0] + i;
             if (cycleWhenAtEnd) {
-                for (int i = 0; i < BUFFER_SIZE; i++) {
-                    if (i == index[0]) continue;
-                    final int k = i;
-                    int d = (idx[0] - index[0] + i) % numFiles;
-                    if (d < 0) d += numFiles;
-                    expected++;
-                    fis[i] = files[d];
-                    getMTImageLoader().execute(() -> {
-                        if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-                        loadedImages[k] = loadImage(fis[k],false);
-                        if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-                        scaledLoadedImages[k] = getScaledImage(loadedImages[k].profiledImage,width,height,!bestQualityScaling);
-                        synchronized (c) {
-                            c[0]++;
-                            c.notifyAll();
-                        }
-                    });
-                }
-            } else {
-                for (int i = 0; i < BUFFER_SIZE && i < numFiles; i++) {
-                    if (i == index[0]) continue;
-                    final int k = i;
-                    int d = idx[0] - index[0] + i;
-                    if (d >= numFiles) break;
-                    expected++;
-                    fis[i] = files[d];
-                    getMTImageLoader().execute(() -> {
-                        if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-                        loadedImages[k] = loadImage(fis[k],false);
-                        if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-                        scaledLoadedImages[k] = getScaledImage(loadedImages[k].profiledImage,width,height,!bestQualityScaling);
-                        synchronized (c) {
-                            c[0]++;
-                            c.notifyAll();
-                        }
-                    });
-                }
+                d %= numFiles;
+                if (d < 0) d += numFiles;
+            } else if (d >= numFiles) {
+                break;
             }
+            loads.add(i == index[0] ? null : slotLoader.load(d,files[d],false,width,height,!bestQualityScaling));
+        }
+        for (int i = 0; i < loads.size(); i++) {
+            if (loads.get(i) == null) continue;
             try {
-                // wheel in motion takes care of the case when the scrolling might kick in
-                int min = Math.min(expected,Math.min(BUFFER_SIZE - 1,numFiles - 1));
-                while (c[0] != min && !wheelInMotion.get() && !Thread.currentThread().isInterrupted()) {
-                    c.wait(10);
-                }
+                loadedSlots[i] = loads.get(i).get();
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 return;
+            } catch (ExecutionException | CancellationException e) {
+                // the load was cancelled, because the window moved on
             }
+            // wheel in motion takes care of the case when the scrolling might kick in
+            if (wheelInMotion.get()) return;
         }
-        synchronized (mutex) {
-            if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-            for (int i = 0; i < BUFFER_SIZE; i++) {
-                if (loadedImages[i] == null) continue;
-                imageFiles[i] = fis[i];
-                originalImages[i] = loadedImages[i].originalImage;
-                images[i] = loadedImages[i].profiledImage;
-                scaledImages[i] = scaledLoadedImages[i];
-                exif[i] = loadedImages[i].data;
-            }
-        }
+        if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
+        putSlots(loadedSlots,width,height);
     }
 
     /**
      * Reloads all images in the current buffer and scale them to target size. Image aspect ratio is preserved when
-     * scaling. Everything happens in the calling thread.
+     * scaling. Everything happens in the calling thread. Images that are in the image cache are not reloaded.
      *
      * @param width the width of the canvas, to which the images are scaled
      * @param height the height of the canvas, to which the images are scaled
@@ -1887,67 +2208,42 @@ public class Viewer extends JPanel {
             idx = fileIndex;
         }
         int index = getBufferIndexForFileIndex(idx);
+        final int generation = displayGeneration.get();
         File file;
         synchronized (mutex) {
             if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
             file = loadedFile;
         }
-        final EXIFImage loadedImage = loadImage(file,false);
-        if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-        final BufferedImage scaledImage = getScaledImage(loadedImage.profiledImage,width,height,!bestQualityScaling);
+        final ImageSlot slot = loadProgressively(file,idx,width,height,generation);
+        if (slot == null || wheelInMotion.get()) return;
         synchronized (mutex) {
-            if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-            originalImages[index] = loadedImage.originalImage;
-            images[index] = loadedImage.profiledImage;
-            scaledImages[index] = scaledImage;
-            exif[index] = loadedImage.data;
-            imageFiles[index] = file;
+            if (wheelInMotion.get() || Thread.currentThread().isInterrupted()
+                    || generation != displayGeneration.get()) return;
             loadedFile = file;
             fileIndex = indexOf(loadedFile,files,fileIndex,true);
             idx = fileIndex;
         }
-        applyImage(file,idx,loadedImage.originalImage,loadedImage.profiledImage,scaledImage,loadedImage.data,false,true,
-                false);
-        EXIFImage[] loadedImages = new EXIFImage[BUFFER_SIZE];
-        BufferedImage[] scaledLoadedImages = new BufferedImage[BUFFER_SIZE];
-        File[] fis = new File[BUFFER_SIZE];
-        loadedImages[index] = loadedImage;
-        scaledLoadedImages[index] = scaledImage;
-        fis[index] = file;
-        EXIFImage imm;
+        slots.replace(index,slot);
+        applyImage(slot,idx,false,true,false);
+        ImageSlot[] loadedSlots = new ImageSlot[BUFFER_SIZE];
+        loadedSlots[index] = slot;
         if (cycleWhenAtEnd) {
             for (int i = 0; i < BUFFER_SIZE; i++) {
                 if (i == index) continue;
                 int a = (idx - index + i) % numFiles;
                 if (a < 0) a += numFiles;
-                fis[i] = files[a];
-                if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-                imm = loadImage(fis[i],false);
-                loadedImages[i] = imm;
                 if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-                scaledLoadedImages[i] = getScaledImage(loadedImages[i].profiledImage,width,height,!bestQualityScaling);
+                loadedSlots[i] = loadSlot(files[a],false,width,height,!bestQualityScaling);
             }
         } else {
             for (int i = 0; i < BUFFER_SIZE && i < numFiles; i++) {
                 if (i == index) continue;
-                fis[i] = files[idx - index + i];
                 if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-                imm = loadImage(fis[i],false);
-                loadedImages[i] = imm;
-                if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-                scaledLoadedImages[i] = getScaledImage(loadedImages[i].profiledImage,width,height,!bestQualityScaling);
-            }
-        }
-        synchronized (mutex) {
-            if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
-            for (int i = 0; i < BUFFER_SIZE; i++) {
-                imageFiles[i] = fis[i];
-                originalImages[i] = loadedImages[i].originalImage;
-                images[i] = loadedImages[i].profiledImage;
-                scaledImages[i] = scaledLoadedImages[i];
-                exif[i] = loadedImages[i].data;
+                loadedSlots[i] = loadSlot(files[idx - index + i],false,width,height,!bestQualityScaling);
             }
         }
+        if (wheelInMotion.get() || Thread.currentThread().isInterrupted()) return;
+        putSlots(loadedSlots,width,height);
     }
 
     /**
@@ -1970,7 +2266,7 @@ public class Viewer extends JPanel {
         if (guess > -1 && files[guess] == file) {
             return guess;
         }
-        int c = sorting.getComparator().compare(f,file);
+        int c = sorting.getComparator(folderIndex).compare(f,file);
         if (strict) {
             if (c < 0) {
                 for (int i = guess; i < files.length; i++) {
@@ -2011,89 +2307,195 @@ public class Viewer extends JPanel {
     }
 
     /**
-     * Construct a single thread executor, which should be used for general task execution.
+     * Apply the provided image to the displayer. If needed calculate the histogram from the original image. The method
+     * does not lock anything, so the loading threads are never blocked while the histogram is being calculated. If a
+     * different image is applied in the mean time, the histogram of this image is not shown.
+     *
+     * @param slot the slot with the file, the original image (used for the histogram), the profiled image (used for
+     *            zooming) and the scaled image (the actual displayed image)
+     * @param currentFileIndex the index of the file in the selected folder
+     * @param transition true if the transition between current and new image should be done according to the selected
+     *            transition (normal advance) or false if it is a direct change
+     * @param forward true to apply forward transition or false ot apply backward transition
+     * @param fast true if the advance to the next image should be as fast as possible
+     */
+    private void applyImage(ImageSlot slot, int currentFileIndex, boolean transition, boolean forward,
+            boolean fast) {
+        final File file = slot.file;
+        if (file == null) return;
+        slotLoader.setPosition(currentFileIndex,forward,cycleWhenAtEnd ? numFiles : 0);
+        appliedSlot = slot;
+        loadedEXIF = slot.exif;
+        viewerFrame.updateTitle(file);
+        if (showEXIFData) {
+            viewerFrame.getExifDisplayer().setData(slot.exif);
+        }
+        if (showHistogram) {
+            Histogram hist = getHistogram(slot);
+            if (appliedSlot == slot) {
+                viewerFrame.getHistogramDisplayer().setHistogram(hist);
+            }
+        }
+        SwingUtilities.invokeLater(() -> {
+            toolbar.setImageInfo(file.getAbsolutePath(),currentFileIndex,numFiles);
+            if (fast) {
+                canvas.setImage(slot.scaledImage,null);
+            } else if (transition) {
+                canvas.transitionTo(slot.scaledImage,slot.profiledImage,forward);
+            } else {
+                canvas.setImage(slot.scaledImage,slot.profiledImage);
+            }
+        });
+    }
+
+    /**
+     * Returns the histogram of the original image in the given slot. The histogram of the last image is reused if it
+     * belongs to the same file, otherwise it is calculated.
      *
-     * @return the worker executor
+     * @param slot the slot for which the histogram is requested
+     * @return the histogram
      */
-    private synchronized ExecutorService getWorker() {
-        if (worker == null) {
-            worker = new ImageExecutor("Worker",1,new DismissableBlockingQueue<>(2));
+    private Histogram getHistogram(ImageSlot slot) {
+        Histogram hist = loadedHistogram;
+        if (hist == null || hist.getFile() == null
+                || !slot.file.getAbsolutePath().equals(hist.getFile().getAbsolutePath())) {
+            hist = new Histogram(slot.file,ImageUtil.imageHistogram(slot.originalImage));
+            loadedHistogram = hist;
         }
-        return worker;
+        return hist;
     }
 
     /**
-     * Constructs the image loading executor, which is used to exploit the multi-core characteristics of the CPU.
+     * Returns the slot with the image loaded from the given file and scaled to the given size. If the image cache
+     * contains such slot the cached slot is returned, otherwise the image is loaded, scaled and put into the cache.
      *
-     * @return the image loading executor
+     * @param file the file to load
+     * @param fast true for fast loading or false for quality image
+     * @param width the width to scale the image to
+     * @param height the height to scale the image to
+     * @param scaleFast true for fast scaling or false for quality scaling
+     * @return the slot containing the loaded and scaled image or null if the full quality loading was cancelled
      */
-    private synchronized ExecutorService getMTImageLoader() {
-        if (mtImageLoader == null) {
-            mtImageLoader = new ImageExecutor("MultiCoreLoader",NUM_CORES,new LinkedBlockingQueue<>(4 * NUM_CORES));
+    private ImageSlot loadSlot(File file, boolean fast, int width, int height, boolean scaleFast) {
+        ImageSlot slot = imageCache.get(file,width,height,toQuality(fast,scaleFast));
+        if (slot == null) {
+            if (fast) {
+                EXIFImage image = loadImage(file,true);
+                slot = createSlot(file,image.originalImage,image.profiledImage,image.data,width,height,true,scaleFast);
+            } else {
+                long start = System.currentTimeMillis();
+                slot = decodeAndScale(file,width,height,scaleFast);
+                if (slot != null) {
+                    // the cancelled loads would distort the statistics
+                    readAhead.loaded(System.currentTimeMillis() - start,slot.getByteSize());
+                }
+            }
         }
-        return mtImageLoader;
+        return slot;
     }
 
     /**
-     * Returns the executor used for reloading and rescaling images.
+     * Loads the image in full quality through the stages of the decode pipeline and scales it to the given size in the
+     * last stage. The calling thread waits until the image is loaded. If the image could not be loaded, the slot
+     * contains the image that tells so. If the loading was cancelled, no slot is created, because the file itself may
+     * be perfectly valid.
      *
-     * @return the reloading and rescaling executor
+     * @param file the file to load
+     * @param width the width to scale the image to
+     * @param height the height to scale the image to
+     * @param scaleFast true for fast scaling or false for quality scaling
+     * @return the slot containing the loaded and scaled image or null if the loading was cancelled
      */
-    private synchronized ExecutorService getImageReloader() {
-        if (imageReloader == null) {
-            imageReloader = new ImageExecutor("ImageReloader",1,new DismissableBlockingQueue<>(2));
+    private ImageSlot decodeAndScale(File file, int width, int height, boolean scaleFast) {
+        ImageSlot slot = null;
+        try {
+            ColorSpace destinationSpace;
+            synchronized (this) {
+                destinationSpace = this.colorSpace;
+            }
+            slot = decodePipeline.load(file,colorManage,destinationSpace,rotateImage,image -> createSlot(file,
+                    image.originalImage,image.profiledImage,image.data,width,height,false,scaleFast));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (IIOException e) {
+            System.err.println("IIO Exception (" + e.getClass() + "):" + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("IO Exception (" + e.getClass() + "): " + e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Exception (" + e.getClass() + "): " + e.getMessage());
+        }
+        if (slot == null) {
+            slot = createSlot(file,NO_IMAGE.originalImage,NO_IMAGE.profiledImage,NO_IMAGE.data,width,height,false,
+                    scaleFast);
         }
-        return imageReloader;
+        return slot;
     }
 
     /**
-     * Apply the provided image to the displayer. If needed calculate the histogram from the original image.
+     * Scales the profiled image to the given size and puts the resulting slot into the image cache. Images that could
+     * not be loaded or were loaded in an interrupted thread are not cached.
      *
-     * @param file the file from which the image was loaded
-     * @param currentFileIndex the index of the file in the selected folder
-     * @param original the original image which is not manager according to selected profile (but the embedded profile
-     *            is valued, if such preference is selected)
-     * @param profiled the original image changed according to the display profile (used for zooming)
-     * @param scaled the scaled profiled image (the actual displayed image)
-     * @param transition true if the transition between current and new image should be done according to the selected
-     *            transition (normal advance) or false if it is a direct change
-     * @param forward true to apply forward transition or false ot apply backward transition
-     * @param fast true if the advance to the next image should be as fast as possible
+     * @param file the file that the images were loaded from
+     * @param original the original image
+     * @param profiled the profiled image
+     * @param data the exif data
+     * @param width the width to scale the image to
+     * @param height the height to scale the image to
+     * @param fast true if the image was loaded fast or false if it is full quality
+     * @param scaleFast true for fast scaling or false for quality scaling
+     * @return the slot containing the scaled image
      */
-    private synchronized void applyImage(File file, int currentFileIndex, BufferedImage original,
-            BufferedImage profiled, BufferedImage scaled, EXIFData exif, boolean transition, boolean forward,
-            boolean fast) {
-        if (file == null) return;
-        Histogram hist;
-        synchronized (mutex) {
-            loadedEXIF = exif;
-            hist = loadedHistogram;
-            theOriginalNonProfiledImage = original;
+    private ImageSlot createSlot(File file, BufferedImage original, BufferedImage profiled, EXIFData data, int width,
+            int height, boolean fast, boolean scaleFast) {
+        BufferedImage scaled = getScaledImage(profiled,width,height,scaleFast);
+        ImageSlot slot = new ImageSlot(file,original,profiled,scaled,data,toQuality(fast,scaleFast),width,height);
+        if (original != ImageUtil.NO_IMAGE && !Thread.currentThread().isInterrupted()) {
+            imageCache.put(slot,width,height);
         }
-        viewerFrame.updateTitle(file);
-        if (showEXIFData) {
-            viewerFrame.getExifDisplayer().setData(exif);
+        return slot;
+    }
+
+    /**
+     * Returns the quality of the slot loaded and scaled with the given algorithms.
+     *
+     * @param fast true if the image is loaded fast or false for quality image
+     * @param scaleFast true if the image is scaled fast or false for quality scaling
+     * @return the slot quality
+     */
+    private static int toQuality(boolean fast, boolean scaleFast) {
+        if (fast) {
+            return ImageSlot.PREVIEW;
         }
-        if (showHistogram) {
-            if (hist == null || hist.getFile() == null
-                    || !file.getAbsolutePath().equals(hist.getFile().getAbsolutePath())) {
-                hist = new Histogram(file,ImageUtil.imageHistogram(original));
-                synchronized (mutex) {
-                    loadedHistogram = hist;
-                }
+        return scaleFast ? ImageSlot.FAST_SCALED : ImageSlot.FULL;
+    }
+
+    /**
+     * Loads the image from the given file in two phases. If the final image is not in the image cache, the preview
+     * of the image (from the cache or loaded with the fast algorithm) is shown first without any transition. Then the
+     * final image is loaded and returned, so that the caller can show it in place of the preview. If the user moved to
+     * a different image in the mean time (the display generation changed), the loading is abandoned.
+     *
+     * @param file the file to load
+     * @param idx the index of the file in the files array
+     * @param width the width to scale the image to
+     * @param height the height to scale the image to
+     * @param generation the display generation at the time when the loading was requested
+     * @return the final quality slot or null if the slot is no longer needed
+     */
+    private ImageSlot loadProgressively(File file, int idx, int width, int height, int generation) {
+        boolean scaleFast = !bestQualityScaling;
+        ImageSlot slot = imageCache.get(file,width,height,ImageSlot.PREVIEW);
+        if (slot == null || slot.quality < toQuality(false,scaleFast)) {
+            if (slot == null) {
+                EXIFImage image = loadImage(file,true);
+                slot = createSlot(file,image.originalImage,image.profiledImage,image.data,width,height,true,true);
             }
-            viewerFrame.getHistogramDisplayer().setHistogram(hist);
+            if (generation != displayGeneration.get() || Thread.currentThread().isInterrupted()) return null;
+            applyImage(slot,idx,false,true,true);
+            slot = loadSlot(file,false,width,height,scaleFast);
         }
-        SwingUtilities.invokeLater(() -> {
-            toolbar.setImageInfo(file.getAbsolutePath(),currentFileIndex,numFiles);
-            if (fast) {
-                canvas.setImage(scaled,null);
-            } else if (transition) {
-                canvas.transitionTo(scaled,profiled,forward);
-            } else {
-                canvas.setImage(scaled,profiled);
-            }
-        });
+        return generation != displayGeneration.get() || Thread.currentThread().isInterrupted() ? null : slot;
     }
 
     /**
@@ -36,6 +36,7 @@ import javax.swing.WindowConstants;
 import com.jakabobnar.colorprofile.ColorProfileManager;
 import com.jakabobnar.imageviewer.components.HelpDialog;
 import com.jakabobnar.imageviewer.components.SettingsDialog;
+import com.jakabobnar.imageviewer.image.ImageUtil;
 import com.jakabobnar.imageviewer.util.Settings;
 
 import javafx.application.Platform;
@@ -181,7 +182,10 @@ public class ViewerFrame extends JFrame {
                 viewer.openFileOrFolder(this.file);
             }
         });
-        Thread saveSettings = new Thread(() -> setSettings(settings,true));
+        Thread saveSettings = new Thread(() -> {
+            setSettings(settings,true);
+            ImageUtil.saveMetadataCache();
+        });
         saveSettings.setDaemon(false);
         Runtime.getRuntime().addShutdownHook(saveSettings);
     }
@@ -0,0 +1,209 @@
+/*
+ * (C) Copyright 2016 Jaka Bobnar. All rights reserved.
+ */
+package com.jakabobnar.imageviewer;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.jakabobnar.imageviewer.image.ImageUtil;
+import com.jakabobnar.imageviewer.util.ImageExecutor;
+
+/**
+ * ZoomTiles renders the zoomed in image in tiles. Instead of scaling the entire source image to the zoomed in size,
+ * only the tiles that are visible in the viewport (and the ones just around it) are rendered in the background and
+ * kept in a small cache. Until a tile is rendered, the area is painted directly from the source image using the nearest
+ * neighbour interpolation. The memory used for zooming therefore depends on the size of the viewport and not on the
+ * size of the image and the zoom factor.
+ *
+ * @author Jaka Bobnar
+ *
+ */
+final class ZoomTiles {
+
+    private static final int TILE_SIZE = 256;
+
+    private final ImageExecutor renderer = new ImageExecutor("ZoomTiles",1,new LinkedBlockingQueue<>());
+    private final Runnable repaint;
+    private final Map<Integer, BufferedImage> tiles = new LinkedHashMap<Integer, BufferedImage>(64,0.75f,true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, BufferedImage> eldest) {
+            return size() > maxTiles;
+        }
+    };
+    private final Set<Integer> pending = new HashSet<>();
+    private BufferedImage source;
+    private int width;
+    private int height;
+    private int columns;
+    private boolean fast;
+    private int generation;
+    private int maxTiles = 64;
+
+    /**
+     * Constructs a new tile renderer.
+     *
+     * @param repaint the callback, which is called when a new tile is rendered and the viewport should be repainted
+     */
+    ZoomTiles(Runnable repaint) {
+        this.repaint = repaint;
+    }
+
+    /**
+     * Sets the image to zoom into and the total size of the zoomed in image. All previously rendered tiles are
+     * discarded.
+     *
+     * @param source the source image
+     * @param width the width of the zoomed in image
+     * @param height the height of the zoomed in image
+     * @param fast true to render the tiles with fast algorithm or false for smooth algorithm
+     */
+    synchronized void setSource(BufferedImage source, int width, int height, boolean fast) {
+        this.source = source;
+        this.width = width;
+        this.height = height;
+        this.fast = fast;
+        this.columns = (width + TILE_SIZE - 1) / TILE_SIZE;
+        generation++;
+        renderer.getQueue().clear();
+        pending.clear();
+        tiles.clear();
+    }
+
+    /**
+     * Returns the width of the zoomed in image.
+     *
+     * @return the width
+     */
+    synchronized int getWidth() {
+        return source == null ? 0 : width;
+    }
+
+    /**
+     * Returns the height of the zoomed in image.
+     *
+     * @return the height
+     */
+    synchronized int getHeight() {
+        return source == null ? 0 : height;
+    }
+
+    /**
+     * Paints the visible part of the zoomed in image. Tiles that have not been rendered yet are requested and painted
+     * in low quality in the mean time.
+     *
+     * @param g the graphics to paint on
+     * @param x the x coordinate of the top left corner of the zoomed in image in the viewport
+     * @param y the y coordinate of the top left corner of the zoomed in image in the viewport
+     * @param viewWidth the width of the viewport
+     * @param viewHeight the height of the viewport
+     */
+    void paint(Graphics2D g, int x, int y, int viewWidth, int viewHeight) {
+        BufferedImage image;
+        int w, h;
+        synchronized (this) {
+            image = source;
+            w = width;
+            h = height;
+            // the visible tiles plus one ring around them, twice, so that we can move back and forth a bit
+            maxTiles = 2 * (viewWidth / TILE_SIZE + 3) * (viewHeight / TILE_SIZE + 3);
+        }
+        if (image == null || w <= 0 || h <= 0) {
+            return;
+        }
+        int rows = (h + TILE_SIZE - 1) / TILE_SIZE;
+        int cols = (w + TILE_SIZE - 1) / TILE_SIZE;
+        int firstColumn = Math.max(0,-x / TILE_SIZE);
+        int lastColumn = Math.min(cols - 1,(viewWidth - x - 1) / TILE_SIZE);
+        int firstRow = Math.max(0,-y / TILE_SIZE);
+        int lastRow = Math.min(rows - 1,(viewHeight - y - 1) / TILE_SIZE);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                BufferedImage tile = getTile(column,row);
+                int tx = x + column * TILE_SIZE;
+                int ty = y + row * TILE_SIZE;
+                if (tile == null) {
+                    Graphics2D gr = (Graphics2D) g.create();
+                    gr.clipRect(tx,ty,Math.min(TILE_SIZE,w - column * TILE_SIZE),
+                            Math.min(TILE_SIZE,h - row * TILE_SIZE));
+                    gr.setRenderingHints(ImageUtil.NO_HINTS);
+                    gr.translate(x,y);
+                    gr.scale(w / (double) image.getWidth(),h / (double) image.getHeight());
+                    gr.drawImage(image,0,0,null);
+                    gr.dispose();
+                } else {
+                    g.drawImage(tile,tx,ty,null);
+                }
+            }
+        }
+        // prepare the tiles around the viewport, because they are likely to be needed when the image is dragged
+        for (int row = Math.max(0,firstRow - 1); row <= Math.min(rows - 1,lastRow + 1); row++) {
+            for (int column = Math.max(0,firstColumn - 1); column <= Math.min(cols - 1,lastColumn + 1); column++) {
+                getTile(column,row);
+            }
+        }
+    }
+
+    /**
+     * Stop rendering the tiles and release all resources.
+     */
+    void dispose() {
+        renderer.shutdownNow();
+        synchronized (this) {
+            source = null;
+            tiles.clear();
+        }
+    }
+
+    /**
+     * Returns the tile at the given position if it has already been rendered. If it has not been rendered yet, it is
+     * scheduled for rendering.
+     *
+     * @param column the tile column
+     * @param row the tile row
+     * @return the tile or null if the tile is not ready yet
+     */
+    private synchronized BufferedImage getTile(int column, int row) {
+        Integer key = row * columns + column;
+        BufferedImage tile = tiles.get(key);
+        if (tile == null && pending.add(key)) {
+            final int gen = generation;
+            final BufferedImage image = source;
+            final int w = width;
+            final int h = height;
+            final boolean fastRendering = fast;
+            renderer.execute(() -> {
+                BufferedImage t = renderTile(image,w,h,column,row,fastRendering);
+                synchronized (this) {
+                    if (gen != generation) return;
+                    pending.remove(key);
+                    tiles.put(key,t);
+                }
+                repaint.run();
+            });
+        }
+        return tile;
+    }
+
+    private static BufferedImage renderTile(BufferedImage image, int width, int height, int column, int row,
+            boolean fast) {
+        int tw = Math.min(TILE_SIZE,width - column * TILE_SIZE);
+        int th = Math.min(TILE_SIZE,height - row * TILE_SIZE);
+        BufferedImage tile = new BufferedImage(tw,th,BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = tile.createGraphics();
+        g.setRenderingHints(fast ? ImageUtil.NO_HINTS : ImageUtil.HINTS);
+        // the same transformation is used for all tiles, so there are no seams between them
+        g.translate(-column * TILE_SIZE,-row * TILE_SIZE);
+        g.scale(width / (double) image.getWidth(),height / (double) image.getHeight());
+        g.drawImage(image,0,0,null);
+        g.dispose();
+        return tile;
+    }
+}
@@ -154,9 +154,15 @@ public class SettingsDialog extends JDialog {
 
     private static class CaretUpdater implements CaretListener {
         private final IntConsumer consumer;
+        private final int minValue;
 
         CaretUpdater(IntConsumer consumer) {
+            this(consumer,1);
+        }
+
+        CaretUpdater(IntConsumer consumer, int minValue) {
             this.consumer = consumer;
+            this.minValue = minValue;
         }
 
         @Override
@@ -164,7 +170,7 @@ public class SettingsDialog extends JDialog {
             JTextField textField = (JTextField) e.getSource();
             try {
                 int a = Integer.parseInt(textField.getText());
-                if (a > 0) {
+                if (a >= minValue) {
                     consumer.accept(a);
                 }
             } catch (NumberFormatException x) {
@@ -224,17 +230,19 @@ public class SettingsDialog extends JDialog {
         final JPanel transitions = createTransitionsPane();
         final JPanel general = createImagePane();
         final JPanel presentation = createPresentationPane();
+        final JPanel performance = createPerformancePane();
 
         // Set all components but the provided one to invisible. The provided one is set to visible.
         Function<JPanel, ItemListener> toggleComponents = visibleComponent -> e -> {
             if (e.getStateChange() == ItemEvent.SELECTED) {
-                Arrays.asList(general,controls,transitions,presentation).forEach(comp -> comp.setVisible(false));
+                Arrays.asList(general,controls,transitions,presentation,performance)
+                        .forEach(comp -> comp.setVisible(false));
                 visibleComponent.setVisible(true);
             }
         };
 
         JPanel mainContent = new JPanel(new GridBagLayout());
-        JPanel leftPanel = new JPanel(new GridLayout(4,1,5,5));
+        JPanel leftPanel = new JPanel(new GridLayout(5,1,5,5));
 
         JToggleButton generalButton = new JToggleButton("Image");
         generalButton.addItemListener(toggleComponents.apply(general));
@@ -244,9 +252,13 @@ public class SettingsDialog extends JDialog {
         presentationButton.addItemListener(toggleComponents.apply(presentation));
         JToggleButton transitionsButton = new JToggleButton("Transitions");
         transitionsButton.addItemListener(toggleComponents.apply(transitions));
-        Utilities.addToButtonGroup(generalButton,controlsButton,presentationButton,transitionsButton);
+        JToggleButton performanceButton = new JToggleButton("Performance");
+        performanceButton.addItemListener(toggleComponents.apply(performance));
+        Utilities.addToButtonGroup(generalButton,controlsButton,presentationButton,transitionsButton,
+                performanceButton);
         setFixedSize(controlsButton,120,50);
-        Utilities.addToGrid(leftPanel,generalButton,controlsButton,presentationButton,transitionsButton);
+        Utilities.addToGrid(leftPanel,generalButton,controlsButton,presentationButton,transitionsButton,
+                performanceButton);
 
         JButton applyButton = new JButton("Apply");
         applyButton.addActionListener(e -> ((ViewerFrame) getParent()).applySettings(settings));
@@ -262,6 +274,7 @@ public class SettingsDialog extends JDialog {
         mainContent.add(transitions,gbc(1,0,1,1,1,1,NORTH,BOTH,5));
         mainContent.add(general,gbc(1,0,1,1,1,1,NORTH,BOTH,5));
         mainContent.add(presentation,gbc(1,0,1,1,1,1,NORTH,BOTH,5));
+        mainContent.add(performance,gbc(1,0,1,1,1,1,NORTH,BOTH,5));
         mainContent.add(buttonPanel,gbc(0,1,2,1,0,0,NORTHEAST,NONE,0,10,12,12));
 
         setContentPane(mainContent);
@@ -355,6 +368,97 @@ public class SettingsDialog extends JDialog {
         return contentPanel;
     }
 
+    private JPanel createPerformancePane() {
+        JLabel previewCacheSizeLabel = new JLabel("Preview cache size:");
+        previewCacheSize = new JTextField(6);
+        JLabel previewCacheSizeMB = new JLabel("MB");
+        String previewCacheSizeHelp = "Screen sized previews of large images are stored on disk when scrolling, so "
+                + "that scrolling through the same folder again does not require decoding the full images. When "
+                + "the cache becomes larger than the given size, the least recently used previews are removed. "
+                + "Set the size to 0 to disable the cache.";
+        previewCacheSize.addCaretListener(new CaretUpdater(val -> settings.previewCacheSize = val,0));
+
+        JPanel previewCacheSizePanel = new JPanel(new GridBagLayout());
+        previewCacheSizePanel.add(previewCacheSize,gbc(0,0,1,1,0,0,WEST,NONE,0));
+        previewCacheSizePanel.add(previewCacheSizeMB,gbc(1,0,1,1,1,0,WEST,NONE,0,5,0,0));
+
+        JLabel imageCacheSizeLabel = new JLabel("Image cache size:");
+        imageCacheSize = new JTextField(6);
+        JLabel imageCacheSizeMB = new JLabel("MB");
+        String imageCacheSizeHelp = "Recently viewed images are kept in memory, so that going back to them does not "
+                + "require loading them again. When the cache becomes larger than the given size, the least recently "
+                + "viewed images are removed. The cache never uses more than half of the available memory. Set the "
+                + "size to 0 to disable the cache.";
+        imageCacheSize.addCaretListener(new CaretUpdater(val -> settings.imageCacheSize = val,0));
+
+        JPanel imageCacheSizePanel = new JPanel(new GridBagLayout());
+        imageCacheSizePanel.add(imageCacheSize,gbc(0,0,1,1,0,0,WEST,NONE,0));
+        imageCacheSizePanel.add(imageCacheSizeMB,gbc(1,0,1,1,1,0,WEST,NONE,0,5,0,0));
+
+        JLabel maxLookAheadLabel = new JLabel("Maximum read-ahead:");
+        maxLookAhead = new JTextField(6);
+        JLabel maxLookAheadImages = new JLabel("images");
+        String maxLookAheadHelp = "When advancing through the images in the same direction, the following images are "
+                + "loaded in advance. The faster the images are advanced and the longer it takes to load them, the "
+                + "more images are loaded in advance, but never more than the given number. Fewer images are loaded "
+                + "when the image cache is too small to hold them.";
+        maxLookAhead.addCaretListener(new CaretUpdater(val -> settings.maxLookAhead = val));
+
+        JPanel maxLookAheadPanel = new JPanel(new GridBagLayout());
+        maxLookAheadPanel.add(maxLookAhead,gbc(0,0,1,1,0,0,WEST,NONE,0));
+        maxLookAheadPanel.add(maxLookAheadImages,gbc(1,0,1,1,1,0,WEST,NONE,0,5,0,0));
+
+        JLabel filePrefetchSizeLabel = new JLabel("File prefetch size:");
+        filePrefetchSize = new JTextField(6);
+        JLabel filePrefetchSizeMB = new JLabel("MB");
+        String filePrefetchSizeHelp = "The files following the current image are read from the disk in advance, so "
+                + "that they do not have to be waited for when they are decoded. This is especially useful for "
+                + "network folders and slow disks. The files are read until their total size reaches the given size. "
+                + "Set the size to 0 to disable prefetching.";
+        filePrefetchSize.addCaretListener(new CaretUpdater(val -> settings.filePrefetchSize = val,0));
+
+        JPanel filePrefetchSizePanel = new JPanel(new GridBagLayout());
+        filePrefetchSizePanel.add(filePrefetchSize,gbc(0,0,1,1,0,0,WEST,NONE,0));
+        filePrefetchSizePanel.add(filePrefetchSizeMB,gbc(1,0,1,1,1,0,WEST,NONE,0,5,0,0));
+
+        JLabel sourceCacheSizeLabel = new JLabel("File cache size:");
+        sourceCacheSize = new JTextField(6);
+        JLabel sourceCacheSizeMB = new JLabel("MB");
+        String sourceCacheSizeHelp = "The contents of the prefetched and recently decoded files are kept in memory, so "
+                + "that the images can be decoded without reading the files again. The files are much smaller than "
+                + "the decoded images, therefore many more of them fit into the same amount of memory. Set the size "
+                + "to 0 to disable the cache.";
+        sourceCacheSize.addCaretListener(new CaretUpdater(val -> settings.sourceCacheSize = val,0));
+
+        JPanel sourceCacheSizePanel = new JPanel(new GridBagLayout());
+        sourceCacheSizePanel.add(sourceCacheSize,gbc(0,0,1,1,0,0,WEST,NONE,0));
+        sourceCacheSizePanel.add(sourceCacheSizeMB,gbc(1,0,1,1,1,0,WEST,NONE,0,5,0,0));
+
+        int y = 0;
+        JPanel contentPanel = new JPanel(new GridBagLayout());
+        contentPanel.add(previewCacheSizeLabel,gbc(0,y,1,1,0,0,WEST,NONE,0,5,2,5));
+        contentPanel.add(previewCacheSizePanel,gbc(1,y,1,1,1,0,WEST,NONE,0,0,2,0));
+        contentPanel.add(new HelpArea(previewCacheSizeHelp),
+                gbc(0,++y,2,1,1,0,NORTHWEST,HORIZONTAL,0,HELP_OFFSET,10,15));
+        contentPanel.add(imageCacheSizeLabel,gbc(0,++y,1,1,0,0,WEST,NONE,0,5,2,5));
+        contentPanel.add(imageCacheSizePanel,gbc(1,y,1,1,1,0,WEST,NONE,0,0,2,0));
+        contentPanel.add(new HelpArea(imageCacheSizeHelp),gbc(0,++y,2,1,1,0,NORTHWEST,HORIZONTAL,0,HELP_OFFSET,10,15));
+        contentPanel.add(maxLookAheadLabel,gbc(0,++y,1,1,0,0,WEST,NONE,0,5,2,5));
+        contentPanel.add(maxLookAheadPanel,gbc(1,y,1,1,1,0,WEST,NONE,0,0,2,0));
+        contentPanel.add(new HelpArea(maxLookAheadHelp),gbc(0,++y,2,1,1,0,NORTHWEST,HORIZONTAL,0,HELP_OFFSET,10,15));
+        contentPanel.add(filePrefetchSizeLabel,gbc(0,++y,1,1,0,0,WEST,NONE,0,5,2,5));
+        contentPanel.add(filePrefetchSizePanel,gbc(1,y,1,1,1,0,WEST,NONE,0,0,2,0));
+        contentPanel.add(new HelpArea(filePrefetchSizeHelp),
+                gbc(0,++y,2,1,1,0,NORTHWEST,HORIZONTAL,0,HELP_OFFSET,10,15));
+        contentPanel.add(sourceCacheSizeLabel,gbc(0,++y,1,1,0,0,WEST,NONE,0,5,2,5));
+        contentPanel.add(sourceCacheSizePanel,gbc(1,y,1,1,1,0,WEST,NONE,0,0,2,0));
+        contentPanel.add(new HelpArea(sourceCacheSizeHelp),
+                gbc(0,++y,2,1,1,0,NORTHWEST,HORIZONTAL,0,HELP_OFFSET,10,15));
+        contentPanel.add(new JPanel(),gbc(1,++y,1,1,1,1,WEST,BOTH,0,0,2,0));
+
+        return contentPanel;
+    }
+
     private JPanel createControlsPane() {
         showToolbar = new JCheckBox("Show toolbar");
         showToolbar.addItemListener(itemListener(selected -> settings.showToolbar = selected));
@@ -626,6 +730,12 @@ public class SettingsDialog extends JDialog {
                 + "consume more memory and CPU.";
         multipleCores.addItemListener(itemListener(selected -> settings.useMultipleCores = selected));
 
+        persistMetadataCache = new JCheckBox("Remember image metadata between sessions");
+        String persistMetadataCacheHelp = "Store the EXIF data of the viewed images to disk, so that the folders "
+                + "that have already been viewed can be sorted by date and opened without reading the "
+                + "metadata from every file again.";
+        persistMetadataCache.addItemListener(itemListener(selected -> settings.persistMetadataCache = selected));
+
         waitForImagesToLoad = new JCheckBox("Wait for next image when scrolling");
         String waitForImagesToLoadHelp = "When scrolling with mouse you can wait for the next (in order) image "
                 + "to load or you can advance to the next image that becomes available (some images might not be "
@@ -728,6 +838,9 @@ public class SettingsDialog extends JDialog {
         JPanel contentPanel = new JPanel(new GridBagLayout());
         contentPanel.add(multipleCores,gbc(0,y,2,1,1,0,WEST,NONE,0,0,2,0));
         contentPanel.add(new HelpArea(multipleCoresHelp),gbc(0,++y,2,1,1,0,WEST,HORIZONTAL,0,HELP_OFFSET,10,15));
+        contentPanel.add(persistMetadataCache,gbc(0,++y,2,1,1,0,WEST,NONE,0,0,2,0));
+        contentPanel.add(new HelpArea(persistMetadataCacheHelp),
+                gbc(0,++y,2,1,1,0,WEST,HORIZONTAL,0,HELP_OFFSET,10,15));
         contentPanel.add(waitForImagesToLoad,gbc(0,++y,2,1,1,0,WEST,NONE,0,0,2,0));
         contentPanel.add(new HelpArea(waitForImagesToLoadHelp),gbc(0,++y,2,1,1,0,WEST,HORIZONTAL,0,HELP_OFFSET,10,15));
         contentPanel.add(preferQualityOverSpeed,gbc(0,++y,2,1,1,0,WEST,NONE,0,0,2,0));
@@ -812,8 +925,14 @@ public class SettingsDialog extends JDialog {
         }
 
         multipleCores.setSelected(newSettings.useMultipleCores);
+        persistMetadataCache.setSelected(newSettings.persistMetadataCache);
         waitForImagesToLoad.setSelected(newSettings.waitForImagesToLoadWhenScrolling);
         preferQualityOverSpeed.setSelected(newSettings.preferQualityOverSpeedWhenScrolling);
+        previewCacheSize.setText(String.valueOf(newSettings.previewCacheSize));
+        imageCacheSize.setText(String.valueOf(newSettings.imageCacheSize));
+        maxLookAhead.setText(String.valueOf(newSettings.maxLookAhead));
+        filePrefetchSize.setText(String.valueOf(newSettings.filePrefetchSize));
+        sourceCacheSize.setText(String.valueOf(newSettings.sourceCacheSize));
         systemDefaultProfile.setSelected(newSettings.systemColorProfile);
         customProfileSelector.setSelectedItem(newSettings.colorProfile);
         customProfile.setSelected(!newSettings.systemColorProfile);
@@ -867,8 +986,14 @@ public class SettingsDialog extends JDialog {
     private JList<Transition> availableTransitions;
     private JList<Transition> selectedTransitions;
     private JCheckBox multipleCores;
+    private JCheckBox persistMetadataCache;
     private JCheckBox waitForImagesToLoad;
     private JCheckBox preferQualityOverSpeed;
+    private JTextField previewCacheSize;
+    private JTextField imageCacheSize;
+    private JTextField maxLookAhead;
+    private JTextField filePrefetchSize;
+    private JTextField sourceCacheSize;
     private JCheckBox colorManage;
     private JCheckBox displayColorManage;
     private JRadioButton systemDefaultProfile;
@@ -0,0 +1,422 @@
+/*
+ * (C) Copyright 2016 Jaka Bobnar. All rights reserved.
+ */
+package com.jakabobnar.imageviewer.image;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import com.jakabobnar.imageviewer.image.ImageUtil.ImageSource;
+import com.jakabobnar.imageviewer.util.ThreadFactory;
+
+/**
+ * DecodePipeline loads the images in full quality in five stages: I/O (opening the file, reading the EXIF data and the
+ * file contents), decoding, orientation, color conversion and scaling. Every stage has its own threads and a bounded
+ * queue. When the queue of the next stage is full, the stage waits, so the stages cannot run ahead of each other and
+ * the number of images in memory is bounded. Because the stages run in parallel, one image can be converted to the
+ * display color space while the next one is being decoded and the following one is being read from the disk.
+ * <p>
+ * The pipeline measures the time that the images spend in each stage and waiting in front of it, which can be
+ * obtained through {@link #getStages()}.
+ *
+ * @author Jaka Bobnar
+ *
+ */
+public final class DecodePipeline {
+
+    /**
+     * Stage is a single step of the pipeline with its own queue and threads. It also collects the timing statistics of
+     * the step.
+     *
+     * @author Jaka Bobnar
+     *
+     */
+    public static final class Stage {
+
+        /**
+         * Step is the work done by the stage on a single job.
+         */
+        @FunctionalInterface
+        private interface Step {
+            void process(Job job) throws IOException, InterruptedException;
+        }
+
+        private final String name;
+        private final BlockingQueue<Job> queue;
+        private final Step step;
+        private final Thread[] threads;
+        private Stage next;
+        private volatile boolean stopped;
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong busyTime = new AtomicLong();
+        private final AtomicLong waitTime = new AtomicLong();
+
+        private Stage(String name, int threads, Step step) {
+            this.name = name;
+            this.queue = new ArrayBlockingQueue<>(2 * threads);
+            this.step = step;
+            this.threads = new Thread[threads];
+            ThreadFactory factory = new ThreadFactory("Decode" + name);
+            for (int i = 0; i < threads; i++) {
+                this.threads[i] = factory.newThread(this::run);
+            }
+        }
+
+        /**
+         * Returns the name of the stage.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the number of threads of this stage.
+         *
+         * @return the number of threads
+         */
+        public int getThreads() {
+            return threads.length;
+        }
+
+        /**
+         * Returns the number of images waiting in front of this stage.
+         *
+         * @return the queue depth
+         */
+        public int getQueueDepth() {
+            return queue.size();
+        }
+
+        /**
+         * Returns the number of images that have been processed by this stage.
+         *
+         * @return the number of processed images
+         */
+        public long getProcessed() {
+            return processed.get();
+        }
+
+        /**
+         * Returns the average time that this stage spent on a single image.
+         *
+         * @return the average processing time in milliseconds
+         */
+        public double getAverageTime() {
+            long n = processed.get();
+            return n == 0 ? 0 : busyTime.get() / 1e6 / n;
+        }
+
+        /**
+         * Returns the average time that an image waited in the queue of this stage.
+         *
+         * @return the average wait time in milliseconds
+         */
+        public double getAverageWaitTime() {
+            long n = processed.get();
+            return n == 0 ? 0 : waitTime.get() / 1e6 / n;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return String.format("%s: threads %d, queued %d, processed %d, avg time %.1f ms, avg wait %.1f ms",name,
+                    threads.length,getQueueDepth(),getProcessed(),getAverageTime(),getAverageWaitTime());
+        }
+
+        private void start() {
+            for (Thread thread : threads) {
+                thread.start();
+            }
+        }
+
+        private void stop() {
+            stopped = true;
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+            List<Job> jobs = new ArrayList<>();
+            // the drained jobs are not owned by any stage thread, so their sources can be closed here
+            queue.drainTo(jobs);
+            for (Job job : jobs) {
+                job.cancel();
+                job.closeSource();
+            }
+        }
+
+        private void put(Job job) throws InterruptedException {
+            job.queued = System.nanoTime();
+            queue.put(job);
+        }
+
+        /**
+         * Takes the jobs from the queue and processes them. The thread that took the job owns it until it is passed to
+         * the next stage, and only the owner may close the source of the job, because the owner may be reading it.
+         */
+        private void run() {
+            while (!stopped) {
+                Job job;
+                try {
+                    job = queue.take();
+                } catch (InterruptedException e) {
+                    // the pipeline was disposed
+                    return;
+                }
+                if (!job.begin()) {
+                    // cancelled while waiting in the queue
+                    job.closeSource();
+                    continue;
+                }
+                long start = System.nanoTime();
+                waitTime.addAndGet(start - job.queued);
+                try {
+                    step.process(job);
+                } catch (InterruptedException e) {
+                    job.fail(new CancellationException("Loading cancelled"));
+                } catch (IOException | RuntimeException e) {
+                    job.fail(e);
+                } finally {
+                    job.end();
+                    // the interrupt was meant for the job, not for the thread; if the pipeline was disposed, the
+                    // stopped flag ends the loop
+                    Thread.interrupted();
+                    if (job.result.isDone()) {
+                        job.closeSource();
+                    }
+                }
+                busyTime.addAndGet(System.nanoTime() - start);
+                processed.incrementAndGet();
+                if (next != null && !job.result.isDone()) {
+                    try {
+                        // blocks if the next stage is busy, which is the back-pressure on this stage
+                        next.put(job);
+                    } catch (InterruptedException e) {
+                        // the pipeline was disposed
+                        job.cancel();
+                        job.closeSource();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Job is a single image travelling through the pipeline.
+     */
+    private static final class Job {
+        final File file;
+        final boolean colorManage;
+        final ColorSpace displaySpace;
+        final boolean rotate;
+        final Function<EXIFImage, ?> finisher;
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        volatile long queued;
+        ImageSource source;
+        EXIFData exif;
+        boolean hasOrientation = true;
+        BufferedImage image;
+        BufferedImage profiled;
+        private Thread worker;
+        private boolean cancelled;
+
+        Job(File file, boolean colorManage, ColorSpace displaySpace, boolean rotate, Function<EXIFImage, ?> finisher) {
+            this.file = file;
+            this.colorManage = colorManage;
+            this.displaySpace = displaySpace;
+            this.rotate = rotate;
+            this.finisher = finisher;
+        }
+
+        synchronized boolean begin() {
+            if (cancelled || result.isDone()) {
+                return false;
+            }
+            worker = Thread.currentThread();
+            return true;
+        }
+
+        synchronized void end() {
+            worker = null;
+        }
+
+        /**
+         * Cancels the job. The source is not closed here, because the stage thread may still be reading it; the stage
+         * thread closes it when it notices that the job is done.
+         */
+        synchronized void cancel() {
+            cancelled = true;
+            if (worker != null) {
+                worker.interrupt();
+            }
+            fail(new CancellationException("Loading cancelled"));
+        }
+
+        void fail(Throwable t) {
+            result.completeExceptionally(t);
+        }
+
+        void complete(Object value) {
+            result.complete(value);
+        }
+
+        /**
+         * Closes the source of the job. May only be called by the thread that owns the job.
+         */
+        void closeSource() {
+            ImageSource s;
+            synchronized (this) {
+                s = source;
+                source = null;
+            }
+            if (s != null) {
+                try {
+                    s.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    private final List<Stage> stages;
+    private final Stage first;
+
+    /**
+     * Constructs a new pipeline, which distributes the threads between the stages according to the given number of
+     * processor cores. The threads are started immediately.
+     *
+     * @param cores the number of processor cores
+     */
+    public DecodePipeline(int cores) {
+        Stage io = new Stage("IO",2,this::read);
+        Stage decode = new Stage("Decode",Math.max(1,cores),this::decode);
+        Stage orient = new Stage("Orient",Math.max(1,cores / 4),this::orient);
+        Stage convert = new Stage("Colour",Math.max(1,cores / 2),this::convert);
+        Stage scale = new Stage("Scale",Math.max(1,cores / 2),this::scale);
+        io.next = decode;
+        decode.next = orient;
+        orient.next = convert;
+        convert.next = scale;
+        List<Stage> list = new ArrayList<>();
+        Collections.addAll(list,io,decode,orient,convert,scale);
+        this.stages = Collections.unmodifiableList(list);
+        this.first = io;
+        stages.forEach(Stage::start);
+    }
+
+    /**
+     * Loads the image from the given file through the pipeline and waits until it has been loaded. The loaded image is
+     * passed to the finisher in the last (scaling) stage and the result of the finisher is returned. If the calling
+     * thread is interrupted, the loading is cancelled.
+     *
+     * @param file the file to load
+     * @param colorManage true to respect the embedded color profile or false to ignore it
+     * @param displaySpace the destination color space
+     * @param rotate true to rotate the image according to the orientation in the EXIF data
+     * @param finisher the function that scales the loaded image in the last stage
+     * @param <T> the type of the result
+     * @return the result of the finisher or null if the image could not be decoded
+     * @throws IOException in case of an IO related error
+     * @throws InterruptedException if the loading was cancelled
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T load(File file, boolean colorManage, ColorSpace displaySpace, boolean rotate,
+            Function<EXIFImage, T> finisher) throws IOException, InterruptedException {
+        Job job = new Job(file,colorManage,displaySpace,rotate,finisher);
+        try {
+            first.put(job);
+            return (T) job.result.get();
+        } catch (InterruptedException e) {
+            job.cancel();
+            throw e;
+        } catch (CancellationException e) {
+            throw new InterruptedException(e.getMessage());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CancellationException) {
+                throw new InterruptedException(cause.getMessage());
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Returns the stages of the pipeline, from the first to the last one.
+     *
+     * @return the stages
+     */
+    public List<Stage> getStages() {
+        return stages;
+    }
+
+    /**
+     * Stops all threads of the pipeline. The images that are being loaded are cancelled. The pipeline cannot be used
+     * after it has been disposed.
+     */
+    public void dispose() {
+        stages.forEach(Stage::stop);
+    }
+
+    private void read(Job job) throws IOException {
+        ImageSource source = ImageUtil.openSource(job.file);
+        synchronized (job) {
+            job.source = source;
+        }
+    }
+
+    private void decode(Job job) throws IOException, InterruptedException {
+        ImageSource source;
+        synchronized (job) {
+            source = job.source;
+        }
+        try {
+            job.image = ImageUtil.decode(source,job.colorManage,job.displaySpace);
+            job.exif = source.exif;
+        } finally {
+            job.closeSource();
+        }
+        if (job.image == null) {
+            job.complete(null);
+        } else if (job.exif == null) {
+            // without exif there is no orientation to apply
+            job.exif = new EXIFData(job.file,job.image);
+            job.hasOrientation = false;
+        }
+    }
+
+    private void orient(Job job) {
+        if (job.rotate && job.hasOrientation) {
+            job.image = ImageUtil.orient(job.image,job.exif);
+        }
+    }
+
+    private void convert(Job job) {
+        job.profiled = ImageUtil.toDisplaySpace(job.image,job.colorManage,job.displaySpace);
+    }
+
+    private void scale(Job job) {
+        job.complete(job.finisher.apply(new EXIFImage(job.exif,job.image,job.profiled)));
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * (C) Copyright 2016 Jaka Bobnar. All rights reserved.
+ */
+package com.jakabobnar.imageviewer.image;
+
+import java.io.IOException;
+
+import com.twelvemonkeys.imageio.util.Constants;
+
+/**
+ * DecoderConfig describes how the image readers should treat the color profiles during a single read. The TwelveMonkeys
+ * readers pick up the configuration from the system properties at the time of reading, which means that concurrent
+ * reads with different configuration would corrupt each other. DecoderConfig therefore guards the reads: any number of
+ * reads with the same configuration can run concurrently, while a read with a different configuration waits until the
+ * running reads complete. A waiting read also blocks new reads with the currently active configuration, so that reads
+ * with different configuration take turns and none of them is starved.
+ * <p>
+ * Previews are not guarded (see {@link #preview(Decoder)}): they never wait for the quality reads and the quality reads
+ * never wait for them, so a preview can be shown while a large image is being decoded. The price is that a preview,
+ * which is decoded while a quality read is running, is decoded with the configuration of that read (it may be color
+ * managed, which is slower, but the preview is replaced by the quality image anyway).
+ *
+ * @author Jaka Bobnar
+ *
+ */
+public final class DecoderConfig {
+
+    /**
+     * Decoder is the actual reading operation executed under a specific decoder configuration.
+     *
+     * @param <T> the type of the read result
+     */
+    @FunctionalInterface
+    public interface Decoder<T> {
+
+        /**
+         * Read the image.
+         *
+         * @return the result of reading
+         * @throws IOException in case of an IO error
+         * @throws InterruptedException if the reading was interrupted
+         */
+        T decode() throws IOException, InterruptedException;
+    }
+
+    // Configuration, which ignores the color profiles completely (used for previews)
+    private static final DecoderConfig FAST = new DecoderConfig(false,false);
+    private static final DecoderConfig[] CONFIGS = { FAST,new DecoderConfig(false,true),new DecoderConfig(true,false),
+            new DecoderConfig(true,true) };
+    private static final Object LOCK = new Object();
+    private static DecoderConfig active;
+    private static int activeReads;
+    private static int waitingReads;
+
+    private final boolean readEmbeddedProfile;
+    private final boolean doColorManagement;
+    // the number of reads waiting for this configuration to become active
+    private int waiting;
+
+    private DecoderConfig(boolean readEmbeddedProfile, boolean doColorManagement) {
+        this.readEmbeddedProfile = readEmbeddedProfile;
+        this.doColorManagement = doColorManagement;
+    }
+
+    /**
+     * Returns the configuration with the given parameters.
+     *
+     * @param readEmbeddedProfile true to read the embedded color profile
+     * @param doColorManagement true if the reader should convert the image to sRGB according to the embedded profile
+     * @return the configuration
+     */
+    public static DecoderConfig of(boolean readEmbeddedProfile, boolean doColorManagement) {
+        return CONFIGS[(readEmbeddedProfile ? 2 : 0) + (doColorManagement ? 1 : 0)];
+    }
+
+    /**
+     * Executes the given decoder with this configuration. The call blocks until the configuration can be applied.
+     *
+     * @param <T> the type of the read result
+     * @param decoder the decoder to execute
+     * @return the result of the decoder
+     * @throws IOException if the decoder throws it
+     * @throws InterruptedException if the thread was interrupted while waiting or decoding
+     */
+    public <T> T read(Decoder<T> decoder) throws IOException, InterruptedException {
+        acquire();
+        try {
+            return decoder.decode();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Executes the decoder of a preview. The decoder does not wait for the running reads. If no read is running, the
+     * configuration that ignores the color profiles is applied, otherwise the preview is decoded with the
+     * configuration of the running reads.
+     *
+     * @param <T> the type of the read result
+     * @param decoder the decoder to execute
+     * @return the result of the decoder
+     * @throws IOException if the decoder throws it
+     * @throws InterruptedException if the decoder was interrupted
+     */
+    public static <T> T preview(Decoder<T> decoder) throws IOException, InterruptedException {
+        synchronized (LOCK) {
+            if (activeReads == 0 && waitingReads == 0 && active != FAST) {
+                FAST.apply();
+            }
+        }
+        return decoder.decode();
+    }
+
+    private void acquire() throws InterruptedException {
+        synchronized (LOCK) {
+            waiting++;
+            waitingReads++;
+            try {
+                // join the running reads only if nobody is waiting for a different configuration
+                while (activeReads > 0 && (active != this || waitingReads > waiting)) {
+                    LOCK.wait();
+                }
+            } finally {
+                waiting--;
+                waitingReads--;
+            }
+            if (active != this) {
+                apply();
+            }
+            activeReads++;
+        }
+    }
+
+    /**
+     * Sets the system properties of this configuration. Call only when holding the lock.
+     */
+    private void apply() {
+        System.setProperty(Constants.READ_EMBEDDED_PROFILE,String.valueOf(readEmbeddedProfile));
+        System.setProperty(Constants.DO_COLOR_MANAGEMENT,String.valueOf(doColorManagement));
+        active = this;
+    }
+
+    private static void release() {
+        synchronized (LOCK) {
+            activeReads--;
+            if (activeReads == 0) {
+                LOCK.notifyAll();
+            }
+        }
+    }
+}
@@ -7,17 +7,26 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+import com.jakabobnar.imageviewer.image.ImageUtil.Orientation;
 
 /**
- * EXIFData represents the EXIF information loaded from an image file
+ * EXIFData represents the EXIF information loaded from an image file. The tags used by the viewer (the TAG_*
+ * constants) are stored in a fixed array of slots, where the dimensions, the orientation and the dates are kept in
+ * their typed form. Any other tag is stored in an overflow map, which is only created when such tag is added. The
+ * tags are accessed by their names, regardless of how they are stored.
  *
  * @author Jaka Bobnar
  *
  */
-public class EXIFData extends HashMap<String, String> {
-    private static final long serialVersionUID = -3417312284712032185L;
+public class EXIFData {
 
     public static final String TAG_FILE = "File";
     public static final String TAG_PROFILE_DESCRIPTION = "Profile Description";
@@ -42,10 +51,46 @@ public class EXIFData extends HashMap<String, String> {
     public static final String TAG_ORIENTATION = "Orientation";
     public static final String TAG_LAST_MODIFIED = "Modified";
 
+    // The tags that have a slot; the index in this array is the index of the slot
+    private static final String[] SLOT_TAGS = { TAG_FILE,TAG_PROFILE_DESCRIPTION,TAG_EXPOSURE_TIME,TAG_F_NUMBER,
+            TAG_EXPOSURE_PROGRAM,TAG_ISO_SPEED,TAG_DATE_TIME,TAG_EXPOSURE_COMPENSATION,TAG_METERING_MODE,TAG_FLASH,
+            TAG_FOCAL_LENGTH,TAG_EXPORUSE_MODE,TAG_WHITE_BALANCE,TAG_BODY_SERIAL_NUMBER,TAG_LENS_MODEL,TAG_MODEL,
+            TAG_LENS,TAG_LENS_TYPE,TAG_IMAGE_WIDTH,TAG_IMAGE_HEIGHT,TAG_ORIENTATION,TAG_LAST_MODIFIED };
+    private static final Map<String, Integer> SLOTS;
+    private static final int SLOT_DATE_TIME;
+    private static final int SLOT_IMAGE_WIDTH;
+    private static final int SLOT_IMAGE_HEIGHT;
+    private static final int SLOT_ORIENTATION;
+    private static final int SLOT_LAST_MODIFIED;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    // The date taken of images without a valid date; it has to be stable, so that the images can be sorted
+    private static final long DEFAULT_DATE = System.currentTimeMillis();
+
     private static final ThreadLocal<SimpleDateFormat> FORMATTER = ThreadLocal
             .withInitial(() -> new SimpleDateFormat("yyyy:MM:dd HH:mm:ss"));
 
-    private Date dateTaken;
+    static {
+        Map<String, Integer> slots = new HashMap<>();
+        for (int i = 0; i < SLOT_TAGS.length; i++) {
+            slots.put(SLOT_TAGS[i],i);
+        }
+        SLOTS = Collections.unmodifiableMap(slots);
+        SLOT_DATE_TIME = slots.get(TAG_DATE_TIME);
+        SLOT_IMAGE_WIDTH = slots.get(TAG_IMAGE_WIDTH);
+        SLOT_IMAGE_HEIGHT = slots.get(TAG_IMAGE_HEIGHT);
+        SLOT_ORIENTATION = slots.get(TAG_ORIENTATION);
+        SLOT_LAST_MODIFIED = slots.get(TAG_LAST_MODIFIED);
+    }
+
+    // The values of the slots; typed values that were successfully parsed are not stored here
+    private final String[] values = new String[SLOT_TAGS.length];
+    private int width = -1;
+    private int height = -1;
+    private Orientation orientation;
+    private long dateTaken = NO_DATE;
+    private long lastModified = NO_DATE;
+    // Tags without a slot, created on first use
+    private Map<String, String> overflow;
 
     /**
      * Constructs the EXIFData which contains the path to the given file, last modified data and the image size.
@@ -55,8 +100,8 @@ public class EXIFData extends HashMap<String, String> {
      */
     public EXIFData(File file, BufferedImage image) {
         this(file);
-        put(TAG_IMAGE_WIDTH,String.valueOf(image.getWidth()));
-        put(TAG_IMAGE_HEIGHT,String.valueOf(image.getHeight()));
+        width = image.getWidth();
+        height = image.getHeight();
     }
 
     /**
@@ -65,10 +110,135 @@ public class EXIFData extends HashMap<String, String> {
      * @param file the file for which to create the exif
      */
     public EXIFData(File file) {
-        put(TAG_FILE,file.getAbsolutePath());
-        String date = FORMATTER.get().format(new Date(file.lastModified()));
-        put(TAG_DATE_TIME,date);
-        put(TAG_LAST_MODIFIED,date);
+        values[0] = file.getAbsolutePath();
+        // the tags have a resolution of one second
+        long date = file.lastModified() / 1000 * 1000;
+        dateTaken = date;
+        lastModified = date;
+    }
+
+    /**
+     * Construct new EXIFData, which contains the same tags as the given data.
+     *
+     * @param data the data to copy
+     */
+    public EXIFData(EXIFData data) {
+        System.arraycopy(data.values,0,values,0,values.length);
+        this.width = data.width;
+        this.height = data.height;
+        this.orientation = data.orientation;
+        this.dateTaken = data.dateTaken;
+        this.lastModified = data.lastModified;
+        this.overflow = data.overflow == null ? null : new HashMap<>(data.overflow);
+    }
+
+    /**
+     * Construct new EXIFData without any tags.
+     */
+    public EXIFData() {
+        // nothing
+    }
+
+    /**
+     * Returns true if the tag with the given name is used by the viewer and should be read from the file.
+     *
+     * @param tagName the name of the tag
+     * @return true if the tag is relevant or false otherwise
+     */
+    public static boolean isRelevant(String tagName) {
+        return SLOTS.containsKey(tagName) && !TAG_FILE.equals(tagName) && !TAG_LAST_MODIFIED.equals(tagName);
+    }
+
+    /**
+     * Sets the value of the tag. The value of a typed tag is parsed. If it cannot be parsed, it is stored as it is.
+     *
+     * @param tagName the name of the tag
+     * @param value the value of the tag (as provided by the metadata extractor)
+     */
+    public void put(String tagName, String value) {
+        Integer slot = SLOTS.get(tagName);
+        if (slot == null) {
+            if (overflow == null) {
+                overflow = new HashMap<>(4);
+            }
+            overflow.put(tagName,value);
+            return;
+        }
+        int i = slot;
+        boolean parsed;
+        if (i == SLOT_IMAGE_WIDTH) {
+            width = parseDimension(value);
+            parsed = width >= 0;
+        } else if (i == SLOT_IMAGE_HEIGHT) {
+            height = parseDimension(value);
+            parsed = height >= 0;
+        } else if (i == SLOT_ORIENTATION) {
+            orientation = Orientation.of(value);
+            parsed = orientation != null;
+        } else if (i == SLOT_DATE_TIME) {
+            dateTaken = parseDate(value);
+            parsed = dateTaken != NO_DATE;
+        } else if (i == SLOT_LAST_MODIFIED) {
+            lastModified = parseDate(value);
+            parsed = lastModified != NO_DATE;
+        } else {
+            parsed = false;
+        }
+        values[i] = parsed ? null : value;
+    }
+
+    /**
+     * Returns the value of the tag in the same form as it was provided by the metadata extractor.
+     *
+     * @param tagName the name of the tag
+     * @return the value of the tag or null if the tag is not set
+     */
+    public String get(String tagName) {
+        Integer slot = SLOTS.get(tagName);
+        if (slot == null) {
+            return overflow == null ? null : overflow.get(tagName);
+        }
+        return get(slot);
+    }
+
+    /**
+     * Returns the width of the image or -1 if unknown.
+     *
+     * @return the image width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the image or -1 if unknown.
+     *
+     * @return the image height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Sets the dimensions of the image.
+     *
+     * @param width the image width
+     * @param height the image height
+     */
+    public void setSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+        values[SLOT_IMAGE_WIDTH] = null;
+        values[SLOT_IMAGE_HEIGHT] = null;
+    }
+
+    /**
+     * Returns the orientation of the image or null if unknown.
+     *
+     * @return the orientation
+     */
+    public Orientation getOrientation() {
+        return orientation;
     }
 
     /**
@@ -77,26 +247,96 @@ public class EXIFData extends HashMap<String, String> {
      * @return the date when the photo was taken
      */
     public Date getDateTaken() {
-        if (dateTaken == null) {
-            try {
-                dateTaken = FORMATTER.get().parse(get(TAG_DATE_TIME));
-            } catch (ParseException e) {
-                dateTaken = new Date();
+        return new Date(getDateTakenMillis());
+    }
+
+    /**
+     * Returns the date when the picture was taken in milliseconds since epoch. If the information does not exist, the
+     * time when the application was started is returned.
+     *
+     * @return the date when the photo was taken
+     */
+    public long getDateTakenMillis() {
+        return dateTaken == NO_DATE ? DEFAULT_DATE : dateTaken;
+    }
+
+    /**
+     * Returns the number of tags that are set.
+     *
+     * @return the number of tags
+     */
+    public int size() {
+        int n = overflow == null ? 0 : overflow.size();
+        for (int i = 0; i < SLOT_TAGS.length; i++) {
+            if (get(i) != null) {
+                n++;
             }
         }
-        return dateTaken;
+        return n;
     }
 
     /**
-     * Construct new EXIFData without any tags.
+     * Passes all tags that are set and their values to the given action.
+     *
+     * @param action the action that receives the tag name and its value
      */
-    public EXIFData() {
-        // nothing
+    public void forEach(BiConsumer<String, String> action) {
+        for (int i = 0; i < SLOT_TAGS.length; i++) {
+            String value = get(i);
+            if (value != null) {
+                action.accept(SLOT_TAGS[i],value);
+            }
+        }
+        if (overflow != null) {
+            overflow.forEach(action);
+        }
+    }
+
+    private String get(int slot) {
+        if (slot == SLOT_IMAGE_WIDTH && width >= 0) {
+            return String.valueOf(width);
+        } else if (slot == SLOT_IMAGE_HEIGHT && height >= 0) {
+            return String.valueOf(height);
+        } else if (slot == SLOT_ORIENTATION && orientation != null) {
+            return orientation.description;
+        } else if (slot == SLOT_DATE_TIME && dateTaken != NO_DATE) {
+            return FORMATTER.get().format(new Date(dateTaken));
+        } else if (slot == SLOT_LAST_MODIFIED && lastModified != NO_DATE) {
+            return FORMATTER.get().format(new Date(lastModified));
+        }
+        return values[slot];
+    }
+
+    private static int parseDimension(String value) {
+        // the metadata extractor appends the unit (e.g. "6000 pixels")
+        if (value == null) {
+            return -1;
+        }
+        int end = 0;
+        while (end < value.length() && Character.isDigit(value.charAt(end))) {
+            end++;
+        }
+        try {
+            return end == 0 || end > 9 ? -1 : Integer.parseInt(value.substring(0,end));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long parseDate(String value) {
+        if (value == null) {
+            return NO_DATE;
+        }
+        try {
+            return FORMATTER.get().parse(value).getTime();
+        } catch (ParseException e) {
+            return NO_DATE;
+        }
     }
 
     @Override
     public int hashCode() {
-        return super.hashCode();
+        return Objects.hash(Arrays.hashCode(values),width,height,orientation,dateTaken,lastModified,overflow);
     }
 
     @Override
@@ -104,6 +344,16 @@ public class EXIFData extends HashMap<String, String> {
         if (this == obj) return true;
         if (obj == null) return false;
         if (getClass() != obj.getClass()) return false;
-        return super.equals(obj);
-    }    
+        EXIFData other = (EXIFData) obj;
+        return Arrays.equals(values,other.values) && width == other.width && height == other.height
+                && orientation == other.orientation && dateTaken == other.dateTaken
+                && lastModified == other.lastModified && Objects.equals(overflow,other.overflow);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(256).append('{');
+        forEach((k, v) -> sb.append(sb.length() == 1 ? "" : ", ").append(k).append('=').append(v));
+        return sb.append('}').toString();
+    }
 }
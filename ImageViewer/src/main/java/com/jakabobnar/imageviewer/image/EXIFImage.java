@@ -32,8 +32,7 @@ public final class EXIFImage {
         this.profiledImage = null;
         // Overwrite the width and height with actual width and height, because for some images the metadata
         // extractor returns the size of the thumbnail
-        data.put(EXIFData.TAG_IMAGE_WIDTH,String.valueOf(originalImage.getWidth()));
-        data.put(EXIFData.TAG_IMAGE_HEIGHT,String.valueOf(originalImage.getHeight()));
+        data.setSize(originalImage.getWidth(),originalImage.getHeight());
     }
 
     /**
@@ -49,7 +48,6 @@ public final class EXIFImage {
         this.profiledImage = profiledImage;
         // Overwrite the width and height with actual width and height, because for some images the metadata
         // extractor returns the size of the thumbnail
-        data.put(EXIFData.TAG_IMAGE_WIDTH,String.valueOf(originalImage.getWidth()));
-        data.put(EXIFData.TAG_IMAGE_HEIGHT,String.valueOf(originalImage.getHeight()));
+        data.setSize(originalImage.getWidth(),originalImage.getHeight());
     }
 }
@@ -0,0 +1,356 @@
+/*
+ * (C) Copyright 2016 Jaka Bobnar. All rights reserved.
+ */
+package com.jakabobnar.imageviewer.image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import com.twelvemonkeys.imageio.stream.ByteArrayImageInputStream;
+
+/**
+ * EmbeddedPreview finds and decodes the JPEG previews embedded in the image files. Raw files (CR2, NEF, DNG and other
+ * TIFF based formats) usually carry a large JPEG preview in one of their IFDs and many camera JPEGs carry a smaller
+ * preview in the MPF segment or a thumbnail in the EXIF segment. Decoding such preview is much cheaper than decoding
+ * the main image. The preview is stored in the same orientation as the main image.
+ *
+ * @author Jaka Bobnar
+ *
+ */
+public final class EmbeddedPreview {
+
+    private static final int TAG_NEW_SUBFILE_TYPE = 0xFE;
+    private static final int TAG_COMPRESSION = 0x103;
+    private static final int TAG_PHOTOMETRIC = 0x106;
+    private static final int TAG_STRIP_OFFSETS = 0x111;
+    private static final int TAG_STRIP_BYTE_COUNTS = 0x117;
+    private static final int TAG_SUB_IFDS = 0x14A;
+    private static final int TAG_JPEG_OFFSET = 0x201;
+    private static final int TAG_JPEG_LENGTH = 0x202;
+    private static final int TAG_EXIF_IFD = 0x8769;
+    private static final int TAG_MP_ENTRY = 0xB002;
+    private static final int PHOTOMETRIC_CFA = 32803;
+    private static final int PHOTOMETRIC_LINEAR_RAW = 34892;
+    // Protection against corrupted or malicious files
+    private static final int MAX_IFDS = 32;
+    private static final int MAX_ENTRIES = 1000;
+    private static final int MAX_SEGMENTS = 64;
+
+    /**
+     * Candidate is a JPEG stream embedded in the image file.
+     */
+    private static final class Candidate {
+        final long offset;
+        final int length;
+        int width;
+        int height;
+
+        Candidate(long offset, long length) {
+            this.offset = offset;
+            this.length = (int) length;
+        }
+    }
+
+    private EmbeddedPreview() {}
+
+    /**
+     * Finds the smallest embedded preview that is at least as large as the given target size and decodes it. The
+     * preview is subsampled during decoding if it is much larger than the target size. The orientation of the target
+     * size is ignored.
+     *
+     * @param stream the stream to read the preview from
+     * @param width the target width
+     * @param height the target height
+     * @return the preview image or null if the file does not contain a suitable preview
+     * @throws IOException in case of an IO error
+     * @throws InterruptedException if the decoding was cancelled
+     */
+    public static BufferedImage read(ImageInputStream stream, int width, int height)
+            throws IOException, InterruptedException {
+        List<Candidate> candidates = new ArrayList<>();
+        stream.setByteOrder(ByteOrder.BIG_ENDIAN);
+        stream.seek(0);
+        int magic = stream.readUnsignedShort();
+        if (magic == 0xFFD8) {
+            readJPEG(stream,candidates);
+        } else if (magic == 0x4949 || magic == 0x4D4D) {
+            readTIFF(stream,0,candidates);
+        } else {
+            return null;
+        }
+        long streamLength = stream.length();
+        int minSize = Math.min(width,height);
+        int maxSize = Math.max(width,height);
+        Candidate best = null;
+        for (Candidate c : candidates) {
+            if (c.length <= 0 || c.offset <= 0 || (streamLength > 0 && c.offset + c.length > streamLength)) {
+                continue;
+            }
+            if (!readJPEGSize(stream,c)) {
+                continue;
+            }
+            if (Math.min(c.width,c.height) >= minSize && Math.max(c.width,c.height) >= maxSize
+                    && (best == null || (long) c.width * c.height < (long) best.width * best.height)) {
+                best = c;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        byte[] data = new byte[best.length];
+        stream.seek(best.offset);
+        stream.readFully(data);
+        ImageReader reader = ImageReaders.acquire("jpeg");
+        if (reader == null) {
+            return null;
+        }
+        try (ImageInputStream previewStream = new ByteArrayImageInputStream(data)) {
+            reader.setInput(previewStream);
+            ImageReadParam param = reader.getDefaultReadParam();
+            int subsampling = Math.max(1,Math.min(Math.max(best.width,best.height) / maxSize,
+                    Math.min(best.width,best.height) / minSize));
+            param.setSourceSubsampling(subsampling,subsampling,0,0);
+            return ImageReaders.read(reader,param);
+        } finally {
+            ImageReaders.release(reader);
+        }
+    }
+
+    /**
+     * Scans the JPEG segments and collects the JPEG streams from the EXIF (APP1) and MPF (APP2) segments.
+     *
+     * @param stream the stream positioned after the SOI marker
+     * @param candidates the list to add the found candidates to
+     * @throws IOException in case of an IO error
+     */
+    private static void readJPEG(ImageInputStream stream, List<Candidate> candidates) throws IOException {
+        long position = 2;
+        for (int i = 0; i < MAX_SEGMENTS; i++) {
+            stream.setByteOrder(ByteOrder.BIG_ENDIAN);
+            stream.seek(position);
+            if (stream.read() != 0xFF) {
+                return;
+            }
+            int marker = stream.read();
+            while (marker == 0xFF) {
+                marker = stream.read();
+            }
+            if (marker < 0 || marker == 0xDA || marker == 0xD9) {
+                // start of scan or end of image, there is no more metadata
+                return;
+            }
+            int length = stream.readUnsignedShort();
+            long dataStart = stream.getStreamPosition();
+            if (marker == 0xE1 && length > 14) {
+                if (stream.readInt() == 0x45786966 && stream.readUnsignedShort() == 0) {
+                    // Exif\0\0 followed by the TIFF structure
+                    readTIFF(stream,dataStart + 6,candidates);
+                }
+            } else if (marker == 0xE2 && length > 12) {
+                if (stream.readInt() == 0x4D504600) {
+                    // MPF\0 followed by the MP header
+                    readMPF(stream,dataStart + 4,candidates);
+                }
+            }
+            position = dataStart + length - 2;
+        }
+    }
+
+    /**
+     * Reads the multi picture format index and collects all images except the primary one.
+     *
+     * @param stream the stream to read from
+     * @param base the offset of the MP header, which all offsets are relative to
+     * @param candidates the list to add the found candidates to
+     * @throws IOException in case of an IO error
+     */
+    private static void readMPF(ImageInputStream stream, long base, List<Candidate> candidates) throws IOException {
+        if (!readByteOrder(stream,base)) {
+            return;
+        }
+        stream.seek(base + stream.readUnsignedInt());
+        int n = stream.readUnsignedShort();
+        for (int i = 0; i < n && i < MAX_ENTRIES; i++) {
+            int tag = stream.readUnsignedShort();
+            stream.readUnsignedShort();
+            long count = stream.readUnsignedInt();
+            long value = stream.readUnsignedInt();
+            if (tag == TAG_MP_ENTRY) {
+                for (long e = 0; e < count / 16 && e < MAX_IFDS; e++) {
+                    stream.seek(base + value + e * 16 + 4);
+                    long size = stream.readUnsignedInt();
+                    long offset = stream.readUnsignedInt();
+                    // offset 0 denotes the primary image
+                    if (offset > 0) {
+                        candidates.add(new Candidate(base + offset,size));
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Walks the IFDs of the TIFF structure (including sub IFDs and EXIF IFD) and collects all JPEG streams.
+     *
+     * @param stream the stream to read from
+     * @param base the offset of the TIFF header, which all offsets are relative to
+     * @param candidates the list to add the found candidates to
+     * @throws IOException in case of an IO error
+     */
+    private static void readTIFF(ImageInputStream stream, long base, List<Candidate> candidates) throws IOException {
+        if (!readByteOrder(stream,base)) {
+            return;
+        }
+        Deque<Long> ifds = new ArrayDeque<>();
+        Set<Long> visited = new HashSet<>();
+        ifds.add(stream.readUnsignedInt());
+        while (!ifds.isEmpty() && visited.size() < MAX_IFDS) {
+            long ifd = ifds.poll();
+            if (ifd == 0 || !visited.add(ifd)) {
+                continue;
+            }
+            stream.seek(base + ifd);
+            int n = stream.readUnsignedShort();
+            if (n > MAX_ENTRIES) {
+                continue;
+            }
+            long jpegOffset = 0, jpegLength = 0, stripOffset = 0, stripLength = 0;
+            int compression = 0, photometric = 0, subfileType = 0;
+            long subIFDs = 0, subIFDsCount = 0;
+            for (int i = 0; i < n; i++) {
+                int tag = stream.readUnsignedShort();
+                int type = stream.readUnsignedShort();
+                long count = stream.readUnsignedInt();
+                long position = stream.getStreamPosition();
+                long value = type == 3 ? stream.readUnsignedShort() : stream.readUnsignedInt();
+                stream.seek(position + 4);
+                switch (tag) {
+                case TAG_NEW_SUBFILE_TYPE:
+                    subfileType = (int) value;
+                    break;
+                case TAG_COMPRESSION:
+                    compression = (int) value;
+                    break;
+                case TAG_PHOTOMETRIC:
+                    photometric = (int) value;
+                    break;
+                case TAG_STRIP_OFFSETS:
+                    stripOffset = count == 1 ? value : 0;
+                    break;
+                case TAG_STRIP_BYTE_COUNTS:
+                    stripLength = count == 1 ? value : 0;
+                    break;
+                case TAG_JPEG_OFFSET:
+                    jpegOffset = value;
+                    break;
+                case TAG_JPEG_LENGTH:
+                    jpegLength = value;
+                    break;
+                case TAG_SUB_IFDS:
+                    subIFDs = value;
+                    subIFDsCount = count;
+                    break;
+                case TAG_EXIF_IFD:
+                    ifds.add(value);
+                    break;
+                default:
+                    break;
+                }
+            }
+            ifds.add(stream.readUnsignedInt());
+            if (subIFDsCount == 1) {
+                ifds.add(subIFDs);
+            } else if (subIFDsCount > 1) {
+                stream.seek(base + subIFDs);
+                for (long i = 0; i < subIFDsCount && i < MAX_IFDS; i++) {
+                    ifds.add(stream.readUnsignedInt());
+                }
+            }
+            if (jpegOffset > 0 && jpegLength > 0) {
+                candidates.add(new Candidate(base + jpegOffset,jpegLength));
+            } else if ((compression == 6 || compression == 7) && stripOffset > 0 && stripLength > 0
+                    && photometric != PHOTOMETRIC_CFA && photometric != PHOTOMETRIC_LINEAR_RAW
+                    && (compression == 6 || (subfileType & 1) == 1)) {
+                // old style JPEG or a single strip reduced resolution new style JPEG, which is not the raw data
+                candidates.add(new Candidate(base + stripOffset,stripLength));
+            }
+        }
+    }
+
+    /**
+     * Reads the TIFF byte order mark at the given position and sets the byte order on the stream. The stream is
+     * positioned at the offset of the first IFD.
+     *
+     * @param stream the stream to read from
+     * @param base the position of the byte order mark
+     * @return true if the byte order mark was valid or false otherwise
+     * @throws IOException in case of an IO error
+     */
+    private static boolean readByteOrder(ImageInputStream stream, long base) throws IOException {
+        stream.setByteOrder(ByteOrder.BIG_ENDIAN);
+        stream.seek(base);
+        int order = stream.readUnsignedShort();
+        if (order == 0x4949) {
+            stream.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+        } else if (order != 0x4D4D) {
+            return false;
+        }
+        // skip the magic number, which is not 42 for all raw formats
+        stream.readUnsignedShort();
+        return true;
+    }
+
+    /**
+     * Reads the size of the embedded JPEG from its start of frame segment. Only baseline, extended and progressive
+     * JPEGs are accepted; lossless JPEG streams are usually the raw sensor data.
+     *
+     * @param stream the stream to read from
+     * @param candidate the candidate to read the size for
+     * @return true if the size was read and the JPEG is decodable or false otherwise
+     * @throws IOException in case of an IO error
+     */
+    private static boolean readJPEGSize(ImageInputStream stream, Candidate candidate) throws IOException {
+        stream.setByteOrder(ByteOrder.BIG_ENDIAN);
+        stream.seek(candidate.offset);
+        if (stream.readUnsignedShort() != 0xFFD8) {
+            return false;
+        }
+        long end = candidate.offset + candidate.length;
+        for (int i = 0; i < MAX_SEGMENTS && stream.getStreamPosition() < end; i++) {
+            if (stream.read() != 0xFF) {
+                return false;
+            }
+            int marker = stream.read();
+            while (marker == 0xFF) {
+                marker = stream.read();
+            }
+            if (marker < 0 || marker == 0xDA || marker == 0xD9) {
+                return false;
+            }
+            int length = stream.readUnsignedShort();
+            if (marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC) {
+                if (marker > 0xC2) {
+                    return false;
+                }
+                stream.read();
+                candidate.height = stream.readUnsignedShort();
+                candidate.width = stream.readUnsignedShort();
+                return candidate.width > 0 && candidate.height > 0;
+            }
+            stream.seek(stream.getStreamPosition() + length - 2);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * (C) Copyright 2016 Jaka Bobnar. All rights reserved.
+ */
+package com.jakabobnar.imageviewer.image;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.jakabobnar.imageviewer.util.ImageExecutor;
+
+/**
+ * FilePrefetcher reads the files that are about to be viewed in a background thread, so that their contents are in the
+ * operating system's page cache by the time they are decoded. This is particularly useful for network shares and
+ * spinning disks, where the decoding threads would otherwise wait for the data. The files are read sequentially, one
+ * after another, until the total size of the read files reaches the maximum prefetch size. Every new request cancels
+ * the previous one. If a source cache is provided and the file fits into it, the contents of the file are stored into
+ * the cache, so that the image can be decoded without accessing the file again.
+ *
+ * @author Jaka Bobnar
+ *
+ */
+public final class FilePrefetcher {
+
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+
+    private final ImageExecutor reader = new ImageExecutor("FilePrefetcher",1,new LinkedBlockingQueue<>());
+    private final SourceCache sourceCache;
+    private final AtomicInteger generation = new AtomicInteger();
+    // Recently prefetched files ordered by access; the total length of these files is not larger than maxSize
+    private final Map<String, Long> prefetched = new LinkedHashMap<>(64,0.75f,true);
+    private long prefetchedSize;
+    private volatile long maxSize;
+    // used only by the reader thread
+    private ByteBuffer buffer;
+
+    /**
+     * Constructs a new prefetcher.
+     *
+     * @param maxSize the maximum number of bytes to read ahead
+     * @param sourceCache the cache to store the contents of the files into (can be null)
+     */
+    public FilePrefetcher(long maxSize, SourceCache sourceCache) {
+        this.maxSize = maxSize;
+        this.sourceCache = sourceCache;
+    }
+
+    /**
+     * Sets the maximum number of bytes that are read ahead. 0 disables prefetching.
+     *
+     * @param maxSize the maximum prefetch size in bytes
+     */
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        synchronized (prefetched) {
+            evict();
+        }
+    }
+
+    /**
+     * Prefetches the given files in the given order. The files are read until the total size of the files exceeds the
+     * maximum prefetch size. Files that have been prefetched recently are not read again. Any previous prefetching
+     * that has not completed yet is cancelled.
+     *
+     * @param files the files to prefetch, starting with the one that is needed first
+     */
+    public void prefetch(List<File> files) {
+        final int gen = generation.incrementAndGet();
+        reader.getQueue().clear();
+        if (maxSize <= 0 || files.isEmpty()) {
+            return;
+        }
+        reader.execute(() -> {
+            long total = 0;
+            // use only half of the source cache for upcoming files, the other half keeps the recently viewed ones
+            long cacheBudget = sourceCache == null ? 0 : sourceCache.getMaxSize() / 2;
+            for (File file : files) {
+                if (gen != generation.get() || Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                long length = file.length();
+                total += length;
+                if (total > maxSize) {
+                    return;
+                }
+                if (length <= cacheBudget && length < Integer.MAX_VALUE) {
+                    cacheBudget -= length;
+                    readIntoCache(file,length,gen);
+                    continue;
+                }
+                String key = toKey(file);
+                synchronized (prefetched) {
+                    if (prefetched.get(key) != null) {
+                        continue;
+                    }
+                }
+                if (read(file,gen)) {
+                    synchronized (prefetched) {
+                        Long old = prefetched.put(key,length);
+                        prefetchedSize += length - (old == null ? 0 : old);
+                        evict();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Cancels the prefetching that is in progress.
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+        reader.getQueue().clear();
+    }
+
+    /**
+     * Stops the prefetching thread. The prefetcher cannot be used after it has been disposed.
+     */
+    public void dispose() {
+        cancel();
+        reader.shutdownNow();
+    }
+
+    /**
+     * Reads the entire file and discards the data. The reading stops if the prefetch request is cancelled.
+     *
+     * @param file the file to read
+     * @param gen the generation of the prefetch request
+     * @return true if the file was read completely or false otherwise
+     */
+    private boolean read(File file, int gen) {
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(),StandardOpenOption.READ)) {
+            buffer.clear();
+            while (channel.read(buffer) >= 0) {
+                if (gen != generation.get()) {
+                    return false;
+                }
+                buffer.clear();
+            }
+            return true;
+        } catch (IOException e) {
+            // the file cannot be read; the decoder will report the problem if it comes to it
+            return false;
+        }
+    }
+
+    /**
+     * Reads the entire file into the source cache. The reading stops if the prefetch request is cancelled.
+     *
+     * @param file the file to read
+     * @param length the length of the file
+     * @param gen the generation of the prefetch request
+     * @return true if the file was read completely or false otherwise
+     */
+    private boolean readIntoCache(File file, long length, int gen) {
+        if (sourceCache.contains(file)) {
+            return true;
+        }
+        long lastModified = file.lastModified();
+        byte[] data = new byte[(int) length];
+        ByteBuffer target = ByteBuffer.wrap(data);
+        try (FileChannel channel = FileChannel.open(file.toPath(),StandardOpenOption.READ)) {
+            while (target.hasRemaining() && channel.read(target) >= 0) {
+                if (gen != generation.get()) {
+                    return false;
+                }
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        if (target.hasRemaining()) {
+            // the file was truncated while reading
+            return false;
+        }
+        sourceCache.put(file,lastModified,data);
+        return true;
+    }
+
+    /**
+     * Forget the least recently prefetched files until the total size fits into the maximum size. Call only when
+     * holding the lock on the prefetched map.
+     */
+    private void evict() {
+        Iterator<Long> it = prefetched.values().iterator();
+        while (prefetchedSize > maxSize && it.hasNext()) {
+            prefetchedSize -= it.next();
+            it.remove();
+        }
+    }
+
+    private static String toKey(File file) {
+        return file.getAbsolutePath() + '|' + file.lastModified();
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * (C) Copyright 2016 Jaka Bobnar. All rights reserved.
+ */
+package com.jakabobnar.imageviewer.image;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import com.drew.imaging.ImageProcessingException;
+import com.jakabobnar.imageviewer.image.ImageUtil.Orientation;
+
+/**
+ * FolderIndex holds the attributes of all images in a single folder, which are needed for sorting the images: the
+ * size, the modification and creation time, the date when the photo was taken, the dimensions and the orientation.
+ * The index is stored in the user's cache folder, so when the folder is opened again, only the files that were added
+ * or modified since are read. The attributes of new files are read in parallel. The metadata (EXIF) is only read if it
+ * is requested, because it is much slower to obtain than the file attributes.
+ *
+ * @author Jaka Bobnar
+ *
+ */
+public final class FolderIndex {
+
+    /**
+     * Entry contains the indexed attributes of a single file.
+     *
+     * @author Jaka Bobnar
+     *
+     */
+    public static final class Entry {
+        /** The name of the file */
+        public final String name;
+        /** The size of the file in bytes */
+        public final long size;
+        /** The last modification time of the file in milliseconds */
+        public final long lastModified;
+        /** The creation time of the file in milliseconds */
+        public final long creationTime;
+        /** True if the metadata below has been read from the file or false if only the file attributes are known */
+        public final boolean hasMetadata;
+        /** The date when the photo was taken in milliseconds */
+        public final long dateTaken;
+        /** The image width or -1 if unknown */
+        public final int width;
+        /** The image height or -1 if unknown */
+        public final int height;
+        /** The image orientation or null if unknown */
+        public final Orientation orientation;
+
+        Entry(String name, long size, long lastModified, long creationTime, boolean hasMetadata, long dateTaken,
+                int width, int height, Orientation orientation) {
+            this.name = name;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.creationTime = creationTime;
+            this.hasMetadata = hasMetadata;
+            this.dateTaken = dateTaken;
+            this.width = width;
+            this.height = height;
+            this.orientation = orientation;
+        }
+    }
+
+    /** The folder where the indices are stored */
+    public static final File DEFAULT_FOLDER = new File(new File(System.getProperty("user.home"),".imageviewer-cache"),
+            "index");
+    private static final int VERSION = 1;
+    private static volatile boolean persistent = true;
+
+    private final File folder;
+    private final File indexFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean modified;
+
+    private FolderIndex(File folder) {
+        this.folder = folder;
+        String path = folder.getAbsolutePath();
+        this.indexFile = new File(DEFAULT_FOLDER,Integer.toHexString(path.hashCode()) + ".idx");
+    }
+
+    /**
+     * Sets whether the indices are stored to disk. If they are not, the index is built every time the folder is
+     * opened and the existing indices are deleted.
+     *
+     * @param persistent true if the indices should be stored or false otherwise
+     */
+    public static void setPersistent(boolean persistent) {
+        FolderIndex.persistent = persistent;
+        if (!persistent) {
+            File[] files = DEFAULT_FOLDER.listFiles();
+            if (files != null) {
+                Arrays.stream(files).forEach(File::delete);
+            }
+        }
+    }
+
+    /**
+     * Opens the index of the given folder. If the index was stored before, it is loaded, otherwise an empty index is
+     * returned. The index is not validated; call {@link #update(File[], boolean)} before using it.
+     *
+     * @param folder the folder
+     * @return the index of the folder
+     */
+    public static FolderIndex open(File folder) {
+        FolderIndex index = new FolderIndex(folder);
+        if (persistent) {
+            index.load();
+        }
+        return index;
+    }
+
+    /**
+     * Brings the index up to date with the given files. The files that are not indexed or were modified since they
+     * were indexed are read again. The files that are indexed, but not in the given array, are removed from the index.
+     *
+     * @param files the files in the folder that should be indexed
+     * @param readMetadata true if the metadata should be read from the files or false if only the file attributes are
+     *            needed
+     */
+    public void update(File[] files, boolean readMetadata) {
+        Set<String> names = Arrays.stream(files).map(File::getName).collect(Collectors.toSet());
+        if (entries.keySet().retainAll(names)) {
+            modified = true;
+        }
+        refresh(Arrays.asList(files),readMetadata);
+    }
+
+    /**
+     * Reads the given files again if they are not indexed or were modified since they were indexed. The other entries
+     * are not affected.
+     *
+     * @param files the files to index
+     * @param readMetadata true if the metadata should be read from the files or false if only the file attributes are
+     *            needed
+     */
+    public void refresh(Collection<File> files, boolean readMetadata) {
+        files.parallelStream().forEach(file -> {
+            Entry entry = entries.get(file.getName());
+            if (entry != null && entry.lastModified == file.lastModified() && entry.size == file.length()
+                    && (entry.hasMetadata || !readMetadata)) {
+                return;
+            }
+            entry = read(file,readMetadata);
+            if (entry != null) {
+                entries.put(entry.name,entry);
+                modified = true;
+            }
+        });
+    }
+
+    /**
+     * Removes the given files from the index.
+     *
+     * @param files the files to remove
+     */
+    public void remove(Collection<File> files) {
+        for (File file : files) {
+            if (entries.remove(file.getName()) != null) {
+                modified = true;
+            }
+        }
+    }
+
+    /**
+     * Returns the entry of the given file.
+     *
+     * @param file the file (must be in the folder of this index)
+     * @return the entry or null if the file is not indexed
+     */
+    public Entry get(File file) {
+        return entries.get(file.getName());
+    }
+
+    /**
+     * Stores the index to disk if it has been modified since it was loaded.
+     */
+    public void save() {
+        if (!persistent || !modified) {
+            return;
+        }
+        if (!DEFAULT_FOLDER.exists() && !DEFAULT_FOLDER.mkdirs()) {
+            return;
+        }
+        File tmp = new File(DEFAULT_FOLDER,indexFile.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+            out.writeInt(VERSION);
+            out.writeUTF(folder.getAbsolutePath());
+            Entry[] all = entries.values().toArray(new Entry[0]);
+            out.writeInt(all.length);
+            for (Entry e : all) {
+                out.writeUTF(e.name);
+                out.writeLong(e.size);
+                out.writeLong(e.lastModified);
+                out.writeLong(e.creationTime);
+                out.writeBoolean(e.hasMetadata);
+                out.writeLong(e.dateTaken);
+                out.writeInt(e.width);
+                out.writeInt(e.height);
+                out.writeByte(e.orientation == null ? -1 : e.orientation.ordinal());
+            }
+        } catch (IOException e) {
+            return;
+        }
+        try {
+            Files.move(tmp.toPath(),indexFile.toPath(),StandardCopyOption.REPLACE_EXISTING);
+            modified = false;
+        } catch (IOException e) {
+            // ignore, try next time
+        }
+    }
+
+    private void load() {
+        if (!indexFile.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(indexFile.toPath())))) {
+            // different folders can have the same hash; such index belongs to another folder
+            if (in.readInt() != VERSION || !in.readUTF().equals(folder.getAbsolutePath())) {
+                return;
+            }
+            Orientation[] orientations = Orientation.values();
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                String name = in.readUTF();
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                long creationTime = in.readLong();
+                boolean hasMetadata = in.readBoolean();
+                long dateTaken = in.readLong();
+                int width = in.readInt();
+                int height = in.readInt();
+                int orientation = in.readByte();
+                entries.put(name,new Entry(name,size,lastModified,creationTime,hasMetadata,dateTaken,width,height,
+                        orientation < 0 || orientation >= orientations.length ? null : orientations[orientation]));
+            }
+        } catch (IOException | RuntimeException e) {
+            // the index is corrupted, whatever was read is still good
+            modified = true;
+        }
+    }
+
+    private static Entry read(File file, boolean readMetadata) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file.toPath(),BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        long creationTime = attributes.creationTime().toMillis();
+        if (readMetadata) {
+            try {
+                EXIFData exif = ImageUtil.readCachedExifData(file);
+                return new Entry(file.getName(),attributes.size(),lastModified,creationTime,true,
+                        exif.getDateTakenMillis(),exif.getWidth(),exif.getHeight(),exif.getOrientation());
+            } catch (IOException | ImageProcessingException e) {
+                // no metadata, the date taken is the modification date, same as for the files without exif
+                return new Entry(file.getName(),attributes.size(),lastModified,creationTime,true,
+                        lastModified / 1000 * 1000,-1,-1,null);
+            }
+        }
+        return new Entry(file.getName(),attributes.size(),lastModified,creationTime,false,lastModified,-1,-1,null);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * (C) Copyright 2016 Jaka Bobnar. All rights reserved.
+ */
+package com.jakabobnar.imageviewer.image;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+/**
+ * FolderScanner lists the images in a folder. The folder is listed only once and the images are recognised by their
+ * extension, so no file is opened or probed during the scan. A raw file, which has a JPEG sibling with the same name,
+ * is skipped and only the JPEG is listed. This is matched against the names in the listing, so the file system is not
+ * queried for every raw file.
+ *
+ * @author Jaka Bobnar
+ *
+ */
+public final class FolderScanner {
+
+    // Raw formats, which are read through the embedded preview and have no image reader of their own
+    private static final String[] RAW_SUFFIXES = { "3fr","arw","cr2","crw","dcr","dng","erf","kdc","mef","mos","mrw",
+            "nef","nrw","orf","pef","raf","rw2","sr2","srf","srw","x3f" };
+    private static final String[] JPEG_SUFFIXES = { "jpg","jpeg" };
+    // Above this number of files the classification is done in parallel
+    private static final int PARALLEL_THRESHOLD = 5000;
+    private static volatile Set<String> suffixes;
+
+    private FolderScanner() {}
+
+    /**
+     * Returns all images in the given folder, in the order in which they were listed. Subfolders are not included.
+     *
+     * @param folder the folder to scan
+     * @return the images in the folder or null if the folder could not be listed
+     */
+    public static File[] scan(File folder) {
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder.toPath())) {
+            for (Path path : stream) {
+                names.add(path.getFileName().toString());
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        Set<String> allNames = new HashSet<>(names.size() * 2);
+        for (String name : names) {
+            allNames.add(name.toLowerCase(Locale.UK));
+        }
+        Stream<String> stream = names.size() > PARALLEL_THRESHOLD ? names.parallelStream() : names.stream();
+        return stream.filter(name -> isImage(name,allNames)).map(name -> new File(folder,name)).toArray(File[]::new);
+    }
+
+    /**
+     * Returns the existing files in the same folder as the given file, which have the same name, but a different
+     * suffix (for example the raw file of a JPEG file).
+     *
+     * @param file the file
+     * @return the siblings of the file (empty if there are none or the folder could not be listed)
+     */
+    public static List<File> siblings(File file) {
+        List<File> siblings = new ArrayList<>();
+        String name = file.getName().toLowerCase(Locale.UK);
+        int dotIndex = name.lastIndexOf('.');
+        File folder = file.getParentFile();
+        if (dotIndex < 0 || folder == null) {
+            return siblings;
+        }
+        String baseName = name.substring(0,dotIndex + 1);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder.toPath())) {
+            for (Path path : stream) {
+                String siblingName = path.getFileName().toString();
+                String lowerCaseName = siblingName.toLowerCase(Locale.UK);
+                if (lowerCaseName.startsWith(baseName) && lowerCaseName.indexOf('.',baseName.length()) < 0
+                        && !lowerCaseName.equals(name)) {
+                    siblings.add(new File(folder,siblingName));
+                }
+            }
+        } catch (IOException e) {
+            // the folder cannot be listed; the siblings are found when the folder is opened again
+        }
+        return siblings;
+    }
+
+    /**
+     * Returns true if the file with the given name should be shown. The file should be shown if it has the suffix of a
+     * supported format, unless it is a raw file with a JPEG sibling.
+     *
+     * @param name the name of the file
+     * @param lowerCaseNames the lower case names of all files in the same folder
+     * @return true if the file should be shown or false otherwise
+     */
+    public static boolean isImage(String name, Set<String> lowerCaseNames) {
+        String lowerCaseName = name.toLowerCase(Locale.UK);
+        int dotIndex = lowerCaseName.lastIndexOf('.');
+        if (dotIndex < 0) {
+            return false;
+        }
+        String suffix = lowerCaseName.substring(dotIndex + 1);
+        if (!getSuffixes().contains(suffix)) {
+            return false;
+        }
+        if (isJpeg(name)) {
+            return true;
+        }
+        // if there is a jpeg file with the same name only show the jpeg; this file is probably a raw file
+        String baseName = lowerCaseName.substring(0,dotIndex + 1);
+        for (String jpegSuffix : JPEG_SUFFIXES) {
+            if (lowerCaseNames.contains(baseName + jpegSuffix)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the file with the given name is a JPEG file.
+     *
+     * @param name the name of the file
+     * @return true if the name has a JPEG suffix or false otherwise
+     */
+    public static boolean isJpeg(String name) {
+        String lowerCaseName = name.toLowerCase(Locale.UK);
+        return lowerCaseName.endsWith('.' + JPEG_SUFFIXES[0]) || lowerCaseName.endsWith('.' + JPEG_SUFFIXES[1]);
+    }
+
+    /**
+     * Returns the lower case suffixes of all files that can be viewed. Those are the suffixes of the registered image
+     * readers and the suffixes of the raw formats.
+     *
+     * @return the suffixes
+     */
+    private static Set<String> getSuffixes() {
+        Set<String> set = suffixes;
+        if (set == null) {
+            set = new HashSet<>();
+            for (String suffix : ImageIO.getReaderFileSuffixes()) {
+                set.add(suffix.toLowerCase(Locale.UK));
+            }
+            set.addAll(Arrays.asList(RAW_SUFFIXES));
+            set.addAll(Arrays.asList(JPEG_SUFFIXES));
+            set.add("psd");
+            suffixes = set;
+        }
+        return set;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * (C) Copyright 2016 Jaka Bobnar. All rights reserved.
+ */
+package com.jakabobnar.imageviewer.image;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FolderWatcher watches a single folder for files that are created, deleted or modified and notifies the listener
+ * about the changes. The events are collected until the folder has been quiet for a short while (but at most for one
+ * second), so that a file that is being written is reported once, and the changes are reported in batches.
+ *
+ * @author Jaka Bobnar
+ *
+ */
+public final class FolderWatcher {
+
+    /**
+     * Listener receives the changes in the watched folder. It is notified in the watcher thread.
+     *
+     * @author Jaka Bobnar
+     *
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * Called when files in the watched folder were changed. If the watcher lost track of the events, the overflow
+         * flag is set and the sets may be incomplete; the folder should be scanned again.
+         *
+         * @param created the files that were created
+         * @param deleted the files that were deleted
+         * @param modified the files that were modified (but not created)
+         * @param overflow true if some events were lost
+         */
+        void folderChanged(Set<File> created, Set<File> deleted, Set<File> modified, boolean overflow);
+    }
+
+    // The time in milliseconds without events after which the collected events are reported
+    private static final long QUIET_TIME = 250;
+    // The maximum time in milliseconds that the events are collected before they are reported
+    private static final long MAX_DELAY = 1000;
+
+    private WatchService service;
+    private Thread thread;
+
+    /**
+     * Starts watching the given folder. The folder that was watched before is no longer watched.
+     *
+     * @param folder the folder to watch
+     * @param listener the listener that receives the changes
+     */
+    public synchronized void watch(File folder, Listener listener) {
+        stop();
+        WatchService newService = null;
+        try {
+            newService = FileSystems.getDefault().newWatchService();
+            folder.toPath().register(newService,ENTRY_CREATE,ENTRY_DELETE,ENTRY_MODIFY);
+        } catch (IOException | UnsupportedOperationException e) {
+            // the folder cannot be watched; the changes are noticed when the folder is opened again
+            close(newService);
+            return;
+        }
+        final WatchService watchService = newService;
+        service = watchService;
+        thread = new Thread(() -> run(watchService,folder,listener),"FolderWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching the folder.
+     */
+    public synchronized void stop() {
+        close(service);
+        service = null;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    private static void run(WatchService service, File folder, Listener listener) {
+        Set<File> created = new LinkedHashSet<>();
+        Set<File> deleted = new LinkedHashSet<>();
+        Set<File> modified = new LinkedHashSet<>();
+        boolean overflow = false;
+        long firstEvent = 0;
+        try {
+            while (true) {
+                boolean pending = overflow || !created.isEmpty() || !deleted.isEmpty() || !modified.isEmpty();
+                WatchKey key;
+                if (!pending) {
+                    key = service.take();
+                    firstEvent = System.currentTimeMillis();
+                } else {
+                    long wait = Math.min(QUIET_TIME,firstEvent + MAX_DELAY - System.currentTimeMillis());
+                    key = wait > 0 ? service.poll(wait,TimeUnit.MILLISECONDS) : null;
+                }
+                if (key == null) {
+                    listener.folderChanged(created,deleted,modified,overflow);
+                    created = new LinkedHashSet<>();
+                    deleted = new LinkedHashSet<>();
+                    modified = new LinkedHashSet<>();
+                    overflow = false;
+                    continue;
+                }
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        overflow = true;
+                        continue;
+                    }
+                    File file = new File(folder,((Path) event.context()).toString());
+                    if (event.kind() == ENTRY_CREATE) {
+                        if (deleted.remove(file)) {
+                            modified.add(file);
+                        } else {
+                            created.add(file);
+                        }
+                    } else if (event.kind() == ENTRY_DELETE) {
+                        modified.remove(file);
+                        if (!created.remove(file)) {
+                            deleted.add(file);
+                        }
+                    } else if (!created.contains(file)) {
+                        modified.add(file);
+                    }
+                }
+                if (!key.reset()) {
+                    // the folder is no longer accessible
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // stopped
+        }
+    }
+
+    private static void close(WatchService service) {
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * (C) Copyright 2016 Jaka Bobnar. All rights reserved.
+ */
+package com.jakabobnar.imageviewer.image;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ImageCache is an in-memory cache of decoded and scaled images. The images are keyed by the file (path and last
+ * modification time), the size they were scaled to and the quality in which they were loaded. The size of the cache is
+ * limited by the number of bytes occupied by the pixels of the cached images. When the limit is exceeded, the least
+ * recently used images are evicted.
+ *
+ * @author Jaka Bobnar
+ *
+ */
+public final class ImageCache {
+
+    private final Map<String, ImageSlot> slots = new LinkedHashMap<>(64,0.75f,true);
+    private long maxSize;
+    private long size;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructs a new cache.
+     *
+     * @param maxSize the maximum size of the cache in bytes
+     */
+    public ImageCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Sets the maximum size of the cache. If the cache is currently larger than the given size, the least recently
+     * used images are evicted.
+     *
+     * @param maxSize the maximum size in bytes
+     */
+    public synchronized void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        evict();
+    }
+
+    /**
+     * Returns the maximum size of the cache in bytes.
+     *
+     * @return the maximum size
+     */
+    public synchronized long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the best quality cached slot for the given file scaled to the given size, which is at least of the given
+     * quality.
+     *
+     * @param file the source file of the image
+     * @param width the width that the image was scaled to
+     * @param height the height that the image was scaled to
+     * @param minQuality the lowest acceptable quality of the slot (see {@link ImageSlot#quality})
+     * @return the cached slot or null if none exists
+     */
+    public synchronized ImageSlot get(File file, int width, int height, int minQuality) {
+        if (file == null) {
+            return null;
+        }
+        long lastModified = file.lastModified();
+        ImageSlot slot = null;
+        for (int quality = ImageSlot.FULL; quality >= minQuality && slot == null; quality--) {
+            slot = slots.get(toKey(file,lastModified,width,height,quality));
+        }
+        if (slot == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return slot;
+    }
+
+    /**
+     * Puts the slot into the cache. If the slot alone is larger than the size of the cache or if a better quality slot
+     * for the same image is already cached, it is not stored. Lower quality slots of the same image are removed.
+     *
+     * @param slot the slot to store
+     * @param width the width that the image was scaled to
+     * @param height the height that the image was scaled to
+     */
+    public synchronized void put(ImageSlot slot, int width, int height) {
+        long slotSize = slot.getByteSize();
+        if (slot.file == null || slotSize > maxSize) {
+            return;
+        }
+        long lastModified = slot.file.lastModified();
+        for (int quality = ImageSlot.FULL; quality > slot.quality; quality--) {
+            if (slots.containsKey(toKey(slot.file,lastModified,width,height,quality))) {
+                // there is a better one already
+                return;
+            }
+        }
+        ImageSlot old = slots.put(toKey(slot.file,lastModified,width,height,slot.quality),slot);
+        size += slotSize - (old == null ? 0 : old.getByteSize());
+        for (int quality = slot.quality - 1; quality >= ImageSlot.PREVIEW; quality--) {
+            // better quality image obsoletes the lower quality ones
+            old = slots.remove(toKey(slot.file,lastModified,width,height,quality));
+            if (old != null) {
+                size -= old.getByteSize();
+            }
+        }
+        evict();
+    }
+
+    /**
+     * Removes all images of the given file from the cache, regardless of their size and quality.
+     *
+     * @param file the file whose images are removed
+     */
+    public synchronized void remove(File file) {
+        Iterator<ImageSlot> it = slots.values().iterator();
+        while (it.hasNext()) {
+            ImageSlot slot = it.next();
+            if (file.equals(slot.file)) {
+                size -= slot.getByteSize();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all images from the cache. The statistics are preserved.
+     */
+    public synchronized void clear() {
+        slots.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns the number of bytes currently occupied by the cached images.
+     *
+     * @return the size of the cache in bytes
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of requests that were served from the cache.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of requests that could not be served from the cache.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of images that were evicted, because the cache was full.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("ImageCache[images=%d, size=%d MB, hits=%d, misses=%d, evictions=%d]",slots.size(),
+                size >> 20,hits,misses,evictions);
+    }
+
+    /**
+     * Evict the least recently used images until the cache fits into the maximum size. Call only when holding the lock.
+     */
+    private void evict() {
+        Iterator<ImageSlot> it = slots.values().iterator();
+        while (size > maxSize && it.hasNext()) {
+            size -= it.next().getByteSize();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private static String toKey(File file, long lastModified, int width, int height, int quality) {
+        return file.getAbsolutePath() + '|' + lastModified + '|' + width + 'x' + height + '|' + quality;
+    }
+}
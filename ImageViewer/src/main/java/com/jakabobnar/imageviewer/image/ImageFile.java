@@ -54,8 +54,7 @@ public final class ImageFile implements Comparable<ImageFile> {
         this.id = id;
         // Overwrite the width and height with actual width and height, because for some images the metadata
         // extractor returns the size of the thumbnail
-        exif.put(EXIFData.TAG_IMAGE_WIDTH,String.valueOf(originalImage.getWidth()));
-        exif.put(EXIFData.TAG_IMAGE_HEIGHT,String.valueOf(originalImage.getHeight()));
+        exif.setSize(originalImage.getWidth(),originalImage.getHeight());
     }
 
     /*
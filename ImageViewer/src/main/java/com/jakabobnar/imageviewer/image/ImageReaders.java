@@ -0,0 +1,297 @@
+/*
+ * (C) Copyright 2016 Jaka Bobnar. All rights reserved.
+ */
+package com.jakabobnar.imageviewer.image;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.event.IIOReadProgressListener;
+import javax.imageio.spi.ImageReaderSpi;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * ImageReaders is a pool of image readers. {@link ImageIO} probes the stream with every registered reader provider and
+ * constructs a new reader for every read. The pool remembers which provider successfully decoded the files with a
+ * specific extension and probes only that provider the next time. If that provider fails to decode a file, it is
+ * forgotten and all providers are probed again for the next file. The readers are confined to the thread that acquired
+ * them and are reused by that thread after they are released.
+ * <p>
+ * The decoding through {@link #read(ImageReader, ImageReadParam)} can be cancelled. The decoding is aborted when the
+ * decoding thread is interrupted or when {@link #abortAll()} is called. The readers ignore interrupts, therefore the
+ * cancellation is checked by a progress listener, which aborts the reader from the decoding thread.
+ * <p>
+ * The reader should always be used in the following way:
+ *
+ * <pre>
+ * ImageReader reader = ImageReaders.acquire(file,stream);
+ * try {
+ *     reader.setInput(stream);
+ *     BufferedImage image = ImageReaders.read(reader,reader.getDefaultReadParam());
+ * } finally {
+ *     ImageReaders.release(reader);
+ * }
+ * </pre>
+ *
+ * @author Jaka Bobnar
+ *
+ */
+public final class ImageReaders {
+
+    // The provider that successfully decoded the files with the given extension
+    private static final Map<String, ImageReaderSpi> PROVIDERS_BY_SUFFIX = new ConcurrentHashMap<>();
+    // The extensions of the files that the acquired readers are decoding; used to remember the successful provider
+    private static final Map<ImageReader, String> SUFFIXES = new ConcurrentHashMap<>();
+    // The provider for the given format name
+    private static final Map<String, ImageReaderSpi> PROVIDERS_BY_FORMAT = new ConcurrentHashMap<>();
+    // The released readers of the current thread; a reader that is in use is not in the map
+    private static final ThreadLocal<Map<ImageReaderSpi, ImageReader>> READERS = ThreadLocal.withInitial(HashMap::new);
+    // Decodes that are currently in progress
+    private static final Set<Decode> DECODES = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Decode is the cancellation handle of a single decode in progress. It listens to the progress of the reader and
+     * aborts the reader if the decoding was cancelled or the decoding thread was interrupted.
+     */
+    private static final class Decode implements IIOReadProgressListener {
+
+        private final ImageReader reader;
+        private volatile boolean cancelled;
+        private volatile boolean aborted;
+
+        Decode(ImageReader reader) {
+            this.reader = reader;
+        }
+
+        void cancel() {
+            cancelled = true;
+            try {
+                // some readers can only be aborted from the decoding thread; those are aborted by the listener
+                reader.abort();
+            } catch (RuntimeException e) {
+                // ignore
+            }
+        }
+
+        private void check(ImageReader source) {
+            if (cancelled || Thread.currentThread().isInterrupted()) {
+                aborted = true;
+                source.abort();
+            }
+        }
+
+        @Override
+        public void sequenceStarted(ImageReader source, int minIndex) {
+            check(source);
+        }
+
+        @Override
+        public void sequenceComplete(ImageReader source) {
+            // nothing to do
+        }
+
+        @Override
+        public void imageStarted(ImageReader source, int imageIndex) {
+            check(source);
+        }
+
+        @Override
+        public void imageProgress(ImageReader source, float percentageDone) {
+            check(source);
+        }
+
+        @Override
+        public void imageComplete(ImageReader source) {
+            // nothing to do
+        }
+
+        @Override
+        public void thumbnailStarted(ImageReader source, int imageIndex, int thumbnailIndex) {
+            check(source);
+        }
+
+        @Override
+        public void thumbnailProgress(ImageReader source, float percentageDone) {
+            check(source);
+        }
+
+        @Override
+        public void thumbnailComplete(ImageReader source) {
+            // nothing to do
+        }
+
+        @Override
+        public void readAborted(ImageReader source) {
+            aborted = true;
+        }
+    }
+
+    private ImageReaders() {}
+
+    /**
+     * Returns a reader that can decode the given stream. The stream is probed by the provider that decoded the
+     * previous file with the same extension. Only if that provider cannot decode it, all providers are probed. The
+     * provider of the returned reader is remembered for the extension only after the reader has successfully decoded
+     * the image (see {@link #read(ImageReader, ImageReadParam)}). The input of the reader is not set.
+     *
+     * @param file the file that the stream belongs to
+     * @param stream the stream to decode
+     * @return the reader or null if no reader can decode the stream
+     * @throws IOException if the stream could not be read
+     */
+    public static ImageReader acquire(File file, ImageInputStream stream) throws IOException {
+        String suffix = getSuffix(file);
+        ImageReaderSpi provider = PROVIDERS_BY_SUFFIX.get(suffix);
+        ImageReader reader = null;
+        if (provider != null && provider.canDecodeInput(stream)) {
+            reader = acquire(provider);
+        }
+        if (reader == null) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            // the reader has been constructed already, so use it instead of taking one from the pool
+            reader = readers.next();
+        }
+        if (reader.getOriginatingProvider() != null) {
+            SUFFIXES.put(reader,suffix);
+        }
+        return reader;
+    }
+
+    /**
+     * Returns a reader for the given format.
+     *
+     * @param formatName the informal format name (e.g. jpeg)
+     * @return the reader or null if there is no reader for the format
+     */
+    public static ImageReader acquire(String formatName) {
+        ImageReaderSpi provider = PROVIDERS_BY_FORMAT.get(formatName);
+        if (provider == null) {
+            Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName(formatName);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            if (reader.getOriginatingProvider() != null) {
+                PROVIDERS_BY_FORMAT.put(formatName,reader.getOriginatingProvider());
+            }
+            return reader;
+        }
+        return acquire(provider);
+    }
+
+    /**
+     * Decodes the first image using the given reader, which must already have its input set. If the decoding is
+     * cancelled, the partially decoded image is discarded and {@link InterruptedException} is thrown. If the reader
+     * was acquired for a file, its provider is remembered for the extension of the file when the image is decoded, or
+     * forgotten when the decoding fails.
+     *
+     * @param reader the reader to decode the image with
+     * @param param the read parameters
+     * @return the decoded image
+     * @throws IOException in case of an IO error
+     * @throws InterruptedException if the decoding was cancelled
+     */
+    public static BufferedImage read(ImageReader reader, ImageReadParam param)
+            throws IOException, InterruptedException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedException("Decoding cancelled before start");
+        }
+        Decode decode = new Decode(reader);
+        reader.addIIOReadProgressListener(decode);
+        DECODES.add(decode);
+        boolean decoded = false;
+        try {
+            BufferedImage image = reader.read(0,param);
+            if (decode.aborted || decode.cancelled || Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException("Decoding cancelled");
+            }
+            decoded = image != null;
+            return image;
+        } finally {
+            // a cancelled decode says nothing about the provider
+            if (decoded) {
+                rememberProvider(reader);
+            } else if (!decode.aborted && !decode.cancelled && !Thread.currentThread().isInterrupted()) {
+                forgetProvider(reader);
+            }
+            DECODES.remove(decode);
+            reader.removeIIOReadProgressListener(decode);
+        }
+    }
+
+    /**
+     * Cancels all decodes that are currently in progress. Decodes that start after this call are not affected.
+     */
+    public static void abortAll() {
+        DECODES.forEach(Decode::cancel);
+    }
+
+    /**
+     * Releases the reader. The reader is reset and kept for reuse by the current thread. The reader must not be used by
+     * the caller after it has been released.
+     *
+     * @param reader the reader to release
+     */
+    public static void release(ImageReader reader) {
+        if (reader == null) {
+            return;
+        }
+        SUFFIXES.remove(reader);
+        reader.reset();
+        ImageReaderSpi provider = reader.getOriginatingProvider();
+        if (provider == null) {
+            reader.dispose();
+        } else {
+            ImageReader old = READERS.get().put(provider,reader);
+            if (old != null && old != reader) {
+                // the same provider was used for nested reads, keep only one reader
+                old.dispose();
+            }
+        }
+    }
+
+    private static ImageReader acquire(ImageReaderSpi provider) {
+        ImageReader reader = READERS.get().remove(provider);
+        if (reader == null) {
+            try {
+                reader = provider.createReaderInstance();
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        return reader;
+    }
+
+    private static void rememberProvider(ImageReader reader) {
+        String suffix = SUFFIXES.remove(reader);
+        if (suffix != null) {
+            PROVIDERS_BY_SUFFIX.put(suffix,reader.getOriginatingProvider());
+        }
+    }
+
+    private static void forgetProvider(ImageReader reader) {
+        String suffix = SUFFIXES.remove(reader);
+        if (suffix != null) {
+            PROVIDERS_BY_SUFFIX.remove(suffix,reader.getOriginatingProvider());
+        }
+    }
+
+    private static String getSuffix(File file) {
+        String name = file.getName();
+        int index = name.lastIndexOf('.');
+        return index < 0 ? "" : name.substring(index + 1).toLowerCase(Locale.UK);
+    }
+}
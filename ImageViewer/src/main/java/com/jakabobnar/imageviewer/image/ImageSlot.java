@@ -0,0 +1,125 @@
+/*
+ * (C) Copyright 2016 Jaka Bobnar. All rights reserved.
+ */
+package com.jakabobnar.imageviewer.image;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+
+/**
+ * ImageSlot is an immutable container of everything that is needed to display a single image: the file, the original
+ * image, the profiled image, the image scaled to the canvas size, the size of that canvas and the exif data. Since the
+ * slot cannot change, a slot that has been read from the image buffers is always consistent; any change of the image
+ * produces a new slot (see {@link #withScaledImage(BufferedImage, int, int, boolean)}).
+ *
+ * @author Jaka Bobnar
+ *
+ */
+public final class ImageSlot {
+
+    /** Quality of an image that was loaded with the fast (low quality) algorithm */
+    public static final int PREVIEW = 0;
+    /** Quality of an image that was loaded in full quality, but scaled with the fast algorithm */
+    public static final int FAST_SCALED = 1;
+    /** Quality of an image that was loaded in full quality and scaled with the best quality algorithm */
+    public static final int FULL = 2;
+
+    /** The file from which the image was read */
+    public final File file;
+    /** The original image as read from the file */
+    public final BufferedImage originalImage;
+    /** The image adapted for presentation on the screen */
+    public final BufferedImage profiledImage;
+    /** The profiled image scaled to the size of the canvas */
+    public final BufferedImage scaledImage;
+    /** The exif information */
+    public final EXIFData exif;
+    /** The quality of the images ({@link #PREVIEW}, {@link #FAST_SCALED} or {@link #FULL}) */
+    public final int quality;
+    /** The width of the canvas for which the scaled image was created */
+    public final int width;
+    /** The height of the canvas for which the scaled image was created */
+    public final int height;
+
+    /**
+     * Returns a slot for the given file, the image of which has not been loaded yet. All images of the slot are null.
+     *
+     * @param file the file, which will be loaded into the slot
+     * @return the empty slot
+     */
+    public static ImageSlot empty(File file) {
+        return new ImageSlot(file,null,null,null,null,PREVIEW,0,0);
+    }
+
+    /**
+     * Constructs a new slot.
+     *
+     * @param file the source file of the image
+     * @param originalImage the original image, before applying the display color profile
+     * @param profiledImage the image that is adapted to be shown on the screen
+     * @param scaledImage the profiled image scaled to the canvas size
+     * @param exif the image exif data
+     * @param quality the quality of the images
+     * @param width the width of the canvas, to which the image was scaled
+     * @param height the height of the canvas, to which the image was scaled
+     */
+    public ImageSlot(File file, BufferedImage originalImage, BufferedImage profiledImage, BufferedImage scaledImage,
+            EXIFData exif, int quality, int width, int height) {
+        this.file = file;
+        this.originalImage = originalImage;
+        this.profiledImage = profiledImage;
+        this.scaledImage = scaledImage;
+        this.exif = exif;
+        this.quality = quality;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Returns a copy of this slot with the scaled image replaced by the given image. The quality of a preview remains
+     * the same, otherwise it depends on the scaling algorithm.
+     *
+     * @param scaled the profiled image scaled to the canvas size
+     * @param width the width of the canvas
+     * @param height the height of the canvas
+     * @param scaleFast true if the image was scaled with the fast algorithm or false for the quality algorithm
+     * @return the new slot
+     */
+    public ImageSlot withScaledImage(BufferedImage scaled, int width, int height, boolean scaleFast) {
+        int q = quality == PREVIEW ? PREVIEW : scaleFast ? FAST_SCALED : FULL;
+        return new ImageSlot(file,originalImage,profiledImage,scaled,exif,q,width,height);
+    }
+
+    /**
+     * Returns true if this slot contains an image scaled for the canvas of the given size.
+     *
+     * @param width the width of the canvas
+     * @param height the height of the canvas
+     * @return true if the scaled image matches the canvas or false if it has to be rescaled
+     */
+    public boolean isScaledTo(int width, int height) {
+        return scaledImage != null && this.width == width && this.height == height;
+    }
+
+    /**
+     * Returns the number of bytes occupied by the pixels of all images in this slot. Images that are shared between
+     * the original and profiled image are counted only once.
+     *
+     * @return the pixel footprint in bytes
+     */
+    public long getByteSize() {
+        long size = byteSize(originalImage) + byteSize(scaledImage);
+        if (profiledImage != originalImage) {
+            size += byteSize(profiledImage);
+        }
+        return size;
+    }
+
+    private static long byteSize(BufferedImage image) {
+        if (image == null) {
+            return 0;
+        }
+        int bytesPerPixel = (image.getColorModel().getPixelSize() + 7) / 8;
+        return (long) image.getWidth() * image.getHeight() * bytesPerPixel;
+    }
+}
@@ -16,15 +16,17 @@ import java.awt.color.ICC_ColorSpace;
 import java.awt.color.ICC_Profile;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorConvertOp;
-import java.io.BufferedInputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -36,12 +38,16 @@ import javax.swing.JPanel;
 
 import com.drew.imaging.ImageMetadataReader;
 import com.drew.imaging.ImageProcessingException;
+import com.drew.imaging.jpeg.JpegMetadataReader;
 import com.drew.metadata.Directory;
 import com.drew.metadata.Metadata;
 import com.drew.metadata.Tag;
 import com.drew.metadata.exif.ExifDirectoryBase;
+import com.drew.metadata.exif.ExifReader;
+import com.drew.metadata.icc.IccReader;
 import com.twelvemonkeys.imageio.stream.ByteArrayImageInputStream;
 import com.twelvemonkeys.imageio.util.Constants;
+import com.twelvemonkeys.imageio.util.IIOUtil;
 
 /**
  * ImageUtil provides a set of utility methods for loading the images, scaling them to target size and converting them
@@ -71,6 +77,12 @@ public final class ImageUtil {
         MIRROR_HORIZONTAL_ROTATE_90("Right side, bottom (Mirror horizontal and rotate 90 CW)"), //
         MIRROR_HORIZONTAL_ROTATE_270("Left side, top (Mirror horizontal and rotate 270 CW)");
 
+        private static final Map<String, Orientation> BY_DESCRIPTION = new HashMap<>();
+
+        static {
+            Arrays.stream(values()).forEach(c -> BY_DESCRIPTION.put(c.description,c));
+        }
+
         public final String description;
 
         /**
@@ -81,6 +93,47 @@ public final class ImageUtil {
         private Orientation(String description) {
             this.description = description;
         }
+
+        /**
+         * Returns the orientation with the given description.
+         *
+         * @param description the description as provided by the metadata extractor
+         * @return the orientation or null if the description does not match any orientation
+         */
+        public static Orientation of(String description) {
+            return description == null ? null : BY_DESCRIPTION.get(description);
+        }
+    }
+
+    /**
+     * ImageSource is an image file that has been opened for decoding, together with its EXIF data. The source is the
+     * result of the first (I/O) stage of loading an image. It has to be closed when the image has been decoded.
+     *
+     * @author Jaka Bobnar
+     *
+     */
+    public static final class ImageSource implements Closeable {
+        /** The file from which the image is read */
+        public final File file;
+        /** The EXIF data read from the file or null if the file does not contain any */
+        public final EXIFData exif;
+        private final ImageInputStream stream;
+
+        private ImageSource(File file, ImageInputStream stream, EXIFData exif) {
+            this.file = file;
+            this.stream = stream;
+            this.exif = exif;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.io.Closeable#close()
+         */
+        @Override
+        public void close() throws IOException {
+            stream.close();
+        }
     }
 
     /** An image, which is shown when the image file could not be decoded into an image */
@@ -88,8 +141,13 @@ public final class ImageUtil {
     private static volatile AtomicInteger imageId = new AtomicInteger(0);
     private static final ThreadLocal<MediaTracker> MEDIA_TRACKER = ThreadLocal
             .withInitial(() -> new MediaTracker(new JPanel()));
-    private static final Map<String, Orientation> ORIENTATION_TO_CODE;
-    private static final Map<File, EXIFData> EXIF_CACHE = new HashMap<>();
+    private static final MetadataCache METADATA_CACHE = new MetadataCache(MetadataCache.DEFAULT_FILE,20000);
+    // The size of the preview image loaded when loading images as fast as possible
+    private static final int PREVIEW_WIDTH = 800;
+    private static final int PREVIEW_HEIGHT = 600;
+    private static volatile PreviewCache previewCache;
+    // The raw contents of recently viewed and upcoming files
+    private static final SourceCache SOURCE_CACHE = new SourceCache(0);
     /** Rendering hints for fast and low quality rendering */
     public static final Map<RenderingHints.Key, Object> NO_HINTS;
     /** Rendering hints for high quality rendering */
@@ -129,17 +187,128 @@ public final class ImageUtil {
         g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
         g.drawString(message,(dim.width - width) / 2,dim.height / 2);
         g.dispose();
-
-        Map<String,Orientation> orientationToCode = new HashMap<>();
-        Arrays.stream(Orientation.values()).forEach(c -> orientationToCode.put(c.description,c));
-        ORIENTATION_TO_CODE = Collections.unmodifiableMap(orientationToCode);
     }
 
     /**
      * Clear the cache to free memory.
      */
     public static void clearCache() {
-        EXIF_CACHE.clear();
+        METADATA_CACHE.clear();
+    }
+
+    /**
+     * Sets whether the EXIF data cache is stored to disk between sessions.
+     *
+     * @param persistent true to store the cache or false otherwise
+     */
+    public static void setPersistentMetadataCache(boolean persistent) {
+        METADATA_CACHE.setPersistent(persistent);
+    }
+
+    /**
+     * Stores the EXIF data cache to disk if it is persistent.
+     */
+    public static void saveMetadataCache() {
+        METADATA_CACHE.save();
+    }
+
+    /**
+     * Sets the maximum size of the persistent preview cache, which is used when loading images as fast as possible.
+     * If the size is 0, the cache is not used.
+     *
+     * @param sizeInMB the maximum size of the cache in megabytes
+     */
+    public static synchronized void setPreviewCacheSize(int sizeInMB) {
+        if (sizeInMB <= 0) {
+            if (previewCache != null) {
+                previewCache.dispose();
+                previewCache = null;
+            }
+        } else if (previewCache == null) {
+            previewCache = new PreviewCache(PreviewCache.DEFAULT_FOLDER,sizeInMB * 1024L * 1024L);
+        } else {
+            previewCache.setMaxSize(sizeInMB * 1024L * 1024L);
+        }
+    }
+
+    /**
+     * Sets the maximum size of the in-memory cache of raw file contents. The images are decoded from the cached data
+     * when available. If the size is 0, the cache is not used.
+     *
+     * @param sizeInBytes the maximum size of the cache in bytes
+     */
+    public static void setSourceCacheSize(long sizeInBytes) {
+        SOURCE_CACHE.setMaxSize(sizeInBytes);
+    }
+
+    /**
+     * Returns the cache of the raw file contents, which is used when decoding the images.
+     *
+     * @return the source cache
+     */
+    public static SourceCache getSourceCache() {
+        return SOURCE_CACHE;
+    }
+
+    /**
+     * Opens the stream to read the given file. If the contents of the file are in the source cache, the stream reads
+     * from the cached bytes, otherwise it reads from the memory mapped file.
+     *
+     * @param file the file to read
+     * @return the stream
+     * @throws IOException if the file could not be opened
+     */
+    private static ImageInputStream openStream(File file) throws IOException {
+        byte[] data = SOURCE_CACHE.getMaxSize() > 0 ? SOURCE_CACHE.get(file) : null;
+        return data == null ? new MappedImageInputStream(file) : new ByteArrayImageInputStream(data);
+    }
+
+    /**
+     * Opens the stream to read the given file from the source cache. If the file is not cached, but fits into the
+     * cache, its contents are read and put into the cache. Otherwise the stream reads from the memory mapped file.
+     *
+     * @param file the file to read
+     * @return the stream
+     * @throws IOException if the file could not be opened
+     */
+    private static ImageInputStream openCachedStream(File file) throws IOException {
+        long maxSize = SOURCE_CACHE.getMaxSize();
+        if (maxSize > 0) {
+            byte[] data = SOURCE_CACHE.get(file);
+            if (data == null) {
+                long lastModified = file.lastModified();
+                long length = file.length();
+                if (length > 0 && length <= maxSize && length < Integer.MAX_VALUE) {
+                    data = readFile(file,(int) length);
+                    if (data != null) {
+                        SOURCE_CACHE.put(file,lastModified,data);
+                    }
+                }
+            }
+            if (data != null) {
+                return new ByteArrayImageInputStream(data);
+            }
+        }
+        return new MappedImageInputStream(file);
+    }
+
+    /**
+     * Reads the complete contents of the given file.
+     *
+     * @param file the file to read
+     * @param length the expected length of the file
+     * @return the contents of the file or null if the file was modified while reading
+     * @throws IOException if the file could not be read
+     */
+    private static byte[] readFile(File file, int length) throws IOException {
+        byte[] data = new byte[length];
+        ByteBuffer target = ByteBuffer.wrap(data);
+        try (FileChannel channel = FileChannel.open(file.toPath(),StandardOpenOption.READ)) {
+            while (target.hasRemaining() && channel.read(target) >= 0) {
+                // read until the end of the file
+            }
+            return target.hasRemaining() || channel.size() != length ? null : data;
+        }
     }
 
     /**
@@ -218,34 +387,98 @@ public final class ImageUtil {
      */
     public static EXIFImage loadImage(File file, boolean colorManage, ColorSpace displaySpace, boolean rotateImage)
             throws IOException {
-        // In multithreaded applications this could interfere with other threads, but we don't care.
-        // If another thread triggered loading of image with different management, than whatever the previous thread
-        // is doing is completely irrelevant. That image won't be used anywhere. The only problem is that previous
-        // thread needs to do more than needed, but that's life.
-        System.setProperty(Constants.READ_EMBEDDED_PROFILE,String.valueOf(colorManage));
-        System.setProperty(Constants.DO_COLOR_MANAGEMENT,String.valueOf(displaySpace == null));
-        // This stream seems to work the fastest
-        BufferedImage image = ImageIO.read(new BufferedInputStream(Files.newInputStream(file.toPath())));
+        BufferedImage image;
+        EXIFData exif;
+        try (ImageSource source = openSource(file)) {
+            image = decode(source,colorManage,displaySpace);
+            exif = source.exif;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
         if (image == null) {
             return null;
         }
-        EXIFData exif = null;
+        if (exif == null) {
+            exif = new EXIFData(file,image);
+        } else if (rotateImage) {
+            image = orient(image,exif);
+        }
+        return new EXIFImage(exif,image,toDisplaySpace(image,colorManage,displaySpace));
+    }
+
+    /**
+     * Opens the given file for decoding and reads its EXIF data. If the file is not in the source cache, but fits into
+     * it, its contents are read into the cache, so that the file can be decoded again (for example when going back to
+     * it) without disk access. Otherwise the contents are read into the page cache, so that the decoding does not have
+     * to wait for the disk. This is the I/O stage of {@link #loadImage(File, boolean, ColorSpace, boolean)}.
+     *
+     * @param file the file to open
+     * @return the opened source, which has to be closed by the caller
+     * @throws IOException in case of an IO related error
+     */
+    public static ImageSource openSource(File file) throws IOException {
+        // The stream reads from the source cache or straight from the page cache, without copying the file. The same
+        // stream is used for the metadata and the pixels, so the file is opened only once.
+        ImageInputStream stream = openCachedStream(file);
         try {
-            exif = readExifData(file);
-            if (rotateImage) {
-                Orientation orientation = ORIENTATION_TO_CODE.get(exif.get(EXIFData.TAG_ORIENTATION));
-                image = rotateImage(image,orientation);
+            EXIFData exif = null;
+            try {
+                exif = new EXIFData(readCachedExifData(file,stream));
+            } catch (ImageProcessingException e) {
+                // ignore, exif does not exist
             }
-        } catch (ImageProcessingException e) {
-            // ignore, exif does not exist
-            exif = new EXIFData(file,image);
+            stream.seek(0);
+            if (stream instanceof MappedImageInputStream) {
+                ((MappedImageInputStream) stream).load();
+            }
+            return new ImageSource(file,stream,exif);
+        } catch (IOException | RuntimeException e) {
+            stream.close();
+            throw e;
         }
+    }
 
-        BufferedImage profiledImage = image;
+    /**
+     * Decodes the image from the given source. The image is neither rotated nor converted to the display color space.
+     *
+     * @param source the source to decode
+     * @param colorManage true to respect the embedded color profile or false to ignore it
+     * @param displaySpace the destination color space (null if the image is not converted)
+     * @return the decoded image or null if the image could not be decoded
+     * @throws IOException in case of an IO related error
+     * @throws InterruptedException if the decoding was cancelled
+     */
+    public static BufferedImage decode(ImageSource source, boolean colorManage, ColorSpace displaySpace)
+            throws IOException, InterruptedException {
+        // The configuration is applied only to this read; reads with other configuration wait until this one completes
+        return DecoderConfig.of(colorManage,displaySpace == null).read(() -> read(source.file,source.stream));
+    }
+
+    /**
+     * Rotates and mirrors the image according to the orientation in the given EXIF data.
+     *
+     * @param image the image to transform
+     * @param exif the EXIF data of the image
+     * @return the transformed image
+     */
+    public static BufferedImage orient(BufferedImage image, EXIFData exif) {
+        return rotateImage(image,exif.getOrientation());
+    }
+
+    /**
+     * Converts the image to the display color space if the images are color managed.
+     *
+     * @param image the image to convert
+     * @param colorManage true if the images are color managed
+     * @param displaySpace the display color space (can be null)
+     * @return the converted image or the given image if it does not need to be converted
+     */
+    public static BufferedImage toDisplaySpace(BufferedImage image, boolean colorManage, ColorSpace displaySpace) {
         if (displaySpace != null && colorManage) {
-            profiledImage = ImageUtil.convertImageToColorSpaceFast(image,displaySpace);
+            return convertImageToColorSpaceFast(image,displaySpace);
         }
-        return new EXIFImage(exif,image,profiledImage);
+        return image;
     }
 
     /**
@@ -350,6 +583,26 @@ public final class ImageUtil {
         return image;
     }
 
+    /**
+     * Reads the largest JPEG preview embedded in the given file that is not smaller than the given size. Only the
+     * metadata and the preview are read from the file, which makes this much faster than decoding the main image,
+     * especially for raw files. The preview is not rotated.
+     *
+     * @param file the file to load the preview from
+     * @param width the minimum width of the preview
+     * @param height the minimum height of the preview
+     * @return the preview or null if the file does not contain a large enough preview
+     * @throws InterruptedException if the decoding was cancelled
+     */
+    private static BufferedImage readEmbeddedPreview(File file, int width, int height) throws InterruptedException {
+        try (ImageInputStream stream = openStream(file)) {
+            return EmbeddedPreview.read(stream,width,height);
+        } catch (IOException | RuntimeException e) {
+            // the file structure is not as expected, use the main image instead
+            return null;
+        }
+    }
+
     /**
      * Reads the image from the given input stream by down sized it to the given size. The down sizing is coarse, so the
      * image is only useful for quick preview. But the algorithm is relatively fast.
@@ -363,31 +616,60 @@ public final class ImageUtil {
      */
     private static BufferedImage subsampleImage(File file, int width, int height, boolean tryWithToolkitIfSmall)
             throws IOException, InterruptedException {
-        // It is generally faster to read all bytes and then subsample then to use a real stream
-        try (ImageInputStream stream = new ByteArrayImageInputStream(Files.readAllBytes(file.toPath()))) {
-            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
-            if (!readers.hasNext()) {
+        // Random access to the cached or mapped file is as fast as to an array, without copying the file
+        try (ImageInputStream stream = openStream(file)) {
+            ImageReader reader = ImageReaders.acquire(file,stream);
+            if (reader == null) {
                 return null;
             }
-            ImageReader reader = readers.next();
-            ImageReadParam imageReaderParams = reader.getDefaultReadParam();
-            reader.setInput(stream);
-            int w = reader.getWidth(0);
-            int h = reader.getHeight(0);
-            if (tryWithToolkitIfSmall && w <= 2000 && h <= 1500) {
-                BufferedImage image = loadImageWithToolkit(file);
-                if (image != null) {
-                    return image;
+            try {
+                ImageReadParam imageReaderParams = reader.getDefaultReadParam();
+                reader.setInput(stream);
+                int w = reader.getWidth(0);
+                int h = reader.getHeight(0);
+                if (tryWithToolkitIfSmall && w <= 2000 && h <= 1500) {
+                    BufferedImage image = loadImageWithToolkit(file);
+                    if (image != null) {
+                        return image;
+                    }
                 }
+                int subsampling = 1;
+                if (w > width) {
+                    subsampling = w / width;
+                } else if (h > height) {
+                    subsampling = h / height;
+                }
+                imageReaderParams.setSourceSubsampling(subsampling,subsampling,0,0);
+                return ImageReaders.read(reader,imageReaderParams);
+            } finally {
+                ImageReaders.release(reader);
             }
-            int subsampling = 1;
-            if (w > width) {
-                subsampling = w / width;
-            } else if (h > height) {
-                subsampling = h / height;
-            }
-            imageReaderParams.setSourceSubsampling(subsampling,subsampling,0,0);
-            return reader.read(0,imageReaderParams);
+        }
+    }
+
+    /**
+     * Reads the first image from the given stream using a pooled reader. This is the equivalent of
+     * {@link ImageIO#read(ImageInputStream)}, except that the stream is not closed.
+     *
+     * @param file the file that the stream belongs to
+     * @param stream the stream to read the image from
+     * @return the image or null if there is no reader for the stream
+     * @throws IOException in case of an IO error
+     * @throws InterruptedException if the decoding was cancelled
+     */
+    private static BufferedImage read(File file, ImageInputStream stream) throws IOException, InterruptedException {
+        if (stream == null) {
+            return null;
+        }
+        ImageReader reader = ImageReaders.acquire(file,stream);
+        if (reader == null) {
+            return null;
+        }
+        try {
+            reader.setInput(stream,true,true);
+            return ImageReaders.read(reader,reader.getDefaultReadParam());
+        } finally {
+            ImageReaders.release(reader);
         }
     }
 
@@ -395,7 +677,8 @@ public final class ImageUtil {
      * Reads the full image as quickly as possible, but does not color manage it (not even embedded profile). This
      * method uses native sun code to load the image, but if it fails it falls back to
      * {@link #loadImage(File, boolean, ColorSpace, boolean)} with no color space and fast parameter set to
-     * <code>true</code>.
+     * <code>true</code>. If the preview of the image is in the persistent preview cache, the preview is returned
+     * without decoding the file. Otherwise, the large enough JPEG preview embedded in the file is used if it exists.
      *
      * @param file the source of the image
      * @param rotateImage true to rotate the image according to exif or false otherwise
@@ -403,14 +686,21 @@ public final class ImageUtil {
      * @throws IOException if the reading of the image failed
      */
     public static EXIFImage loadImageAsFastAsPossible(File file, boolean rotateImage) throws IOException {
-        System.setProperty(Constants.READ_EMBEDDED_PROFILE,String.valueOf(false));
-        System.setProperty(Constants.DO_COLOR_MANAGEMENT,String.valueOf(false));
-        BufferedImage image = null;
-        try {
-            image = subsampleImage(file,800,600,true);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            // if reading was interrupted, return null
+        PreviewCache cache = previewCache;
+        BufferedImage image = cache == null ? null : cache.get(file,PREVIEW_WIDTH,PREVIEW_HEIGHT);
+        if (image == null) {
+            try {
+                image = DecoderConfig.preview(() -> {
+                    BufferedImage preview = readEmbeddedPreview(file,PREVIEW_WIDTH,PREVIEW_HEIGHT);
+                    return preview == null ? subsampleImage(file,PREVIEW_WIDTH,PREVIEW_HEIGHT,true) : preview;
+                });
+                if (cache != null) {
+                    cache.put(file,PREVIEW_WIDTH,PREVIEW_HEIGHT,image);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // if reading was interrupted, return null
+            }
         }
         if (image == null) {
             return null;
@@ -421,8 +711,7 @@ public final class ImageUtil {
                 // Overwrite the width and height with actual width and height, because for some images the metadata
                 // extractor returns the size of the thumbnail
                 if (rotateImage) {
-                    Orientation orientation = ORIENTATION_TO_CODE.get(exif.get(EXIFData.TAG_ORIENTATION));
-                    image = rotateImage(image,orientation);
+                    image = rotateImage(image,exif.getOrientation());
                 }
 
             } catch (ImageProcessingException e) {
@@ -504,7 +793,7 @@ public final class ImageUtil {
 
     /**
      * Reads the EXIF data from the image file and returns it. The tags that are interested are specified by the
-     * constants in this class.
+     * constants in {@link EXIFData}.
      *
      * @param file the file to red
      * @return EXIFData
@@ -512,29 +801,99 @@ public final class ImageUtil {
      * @throws ImageProcessingException if meta data could not be read from the given file
      */
     public static EXIFData readExifData(File file) throws IOException, ImageProcessingException {
-        EXIFData exif = EXIF_CACHE.get(file);
+        // the cached data is shared, so the caller gets a copy, which it can modify
+        return new EXIFData(readCachedExifData(file));
+    }
+
+    /**
+     * Reads the exif data from the file or returns the cached data if the file has already been read. The returned data
+     * is shared and must not be modified.
+     *
+     * @param file the file to read the data from
+     * @return the exif data
+     * @throws IOException if the file could not be read
+     * @throws ImageProcessingException if the file contents could not be parsed
+     */
+    static EXIFData readCachedExifData(File file) throws IOException, ImageProcessingException {
+        EXIFData exif = METADATA_CACHE.get(file);
         if (exif == null) {
-            exif = new EXIFData(file);
-            Metadata metadata = ImageMetadataReader.readMetadata(file);
-            Collection<ExifDirectoryBase> exifDirectory = metadata.getDirectoriesOfType(ExifDirectoryBase.class);
-            for (Directory directory : metadata.getDirectories()) {
-                if (!exifDirectory.contains(directory)) {
-                    for (Tag tag : directory.getTags()) {
-                        exif.put(tag.getTagName(),tag.getDescription());
-                    }
-                }
+            try (ImageInputStream stream = openStream(file)) {
+                exif = readCachedExifData(file,stream);
             }
-            // EXIF should overwrite whatever else has the same name
-            for (Directory directory : exifDirectory) {
-                for (Tag tag : directory.getTags()) {
-                    exif.put(tag.getTagName(),tag.getDescription());
-                }
+        }
+        return exif;
+    }
+
+    /**
+     * Returns the cached exif data of the file or reads the data from the given stream, which reads the contents of
+     * the file. The position of the stream after this method returns is undefined. The returned data is shared and must
+     * not be modified.
+     *
+     * @param file the file to read the data from
+     * @param stream the stream that reads the file
+     * @return the exif data
+     * @throws IOException if the file could not be read
+     * @throws ImageProcessingException if the file contents could not be parsed
+     */
+    private static EXIFData readCachedExifData(File file, ImageInputStream stream)
+            throws IOException, ImageProcessingException {
+        EXIFData exif = METADATA_CACHE.get(file);
+        if (exif != null) {
+            return exif;
+        }
+        exif = new EXIFData(file);
+        Metadata metadata = readMetadata(stream);
+        Collection<ExifDirectoryBase> exifDirectory = metadata.getDirectoriesOfType(ExifDirectoryBase.class);
+        for (Directory directory : metadata.getDirectories()) {
+            if (!exifDirectory.contains(directory)) {
+                putTags(exif,directory);
             }
-            EXIF_CACHE.put(file,exif);
         }
+        // EXIF should overwrite whatever else has the same name
+        for (Directory directory : exifDirectory) {
+            putTags(exif,directory);
+        }
+        METADATA_CACHE.put(file,exif);
         return exif;
     }
 
+    /**
+     * Parses the metadata from the stream. JPEG files are the most common, so for them only the EXIF (APP1) and ICC
+     * profile (APP2) segments are parsed and the scanning stops at the start of the image data. Other formats are
+     * parsed completely.
+     *
+     * @param stream the stream to parse
+     * @return the metadata
+     * @throws IOException if the stream could not be read
+     * @throws ImageProcessingException if the stream contents could not be parsed
+     */
+    private static Metadata readMetadata(ImageInputStream stream) throws IOException, ImageProcessingException {
+        stream.seek(0);
+        boolean jpeg = stream.read() == 0xFF && stream.read() == 0xD8;
+        stream.seek(0);
+        InputStream in = IIOUtil.createStreamAdapter(stream);
+        if (jpeg) {
+            return JpegMetadataReader.readMetadata(in,Arrays.asList(new ExifReader(),new IccReader()));
+        }
+        return ImageMetadataReader.readMetadata(in,stream.length());
+    }
+
+    /**
+     * Copy the tags from the directory into the exif data. Only the tags that are used by the viewer are formatted and
+     * copied, the rest are skipped.
+     *
+     * @param exif the destination
+     * @param directory the source directory
+     */
+    private static void putTags(EXIFData exif, Directory directory) {
+        for (Tag tag : directory.getTags()) {
+            String name = tag.getTagName();
+            if (EXIFData.isRelevant(name)) {
+                exif.put(name,tag.getDescription());
+            }
+        }
+    }
+
     /**
      * Create 5 histograms for the given image. The histograms are returned in an array: 1st red channel, 2nd green
      * channel, 3rd blue channel, 4th luminosity, 5th combined RGB.
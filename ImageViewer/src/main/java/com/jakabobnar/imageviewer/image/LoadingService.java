@@ -0,0 +1,298 @@
+/*
+ * (C) Copyright 2016 Jaka Bobnar. All rights reserved.
+ */
+package com.jakabobnar.imageviewer.image;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.IntPredicate;
+
+import com.jakabobnar.imageviewer.util.ImageExecutor;
+
+/**
+ * LoadingService loads the images into slots on a fixed pool of threads, which lives as long as the service. Every
+ * load request is keyed by the index of the file in the list of files and returns a future, which is completed with
+ * the loaded slot. If the same image is requested again (with the same parameters) while it is still loading, the
+ * pending future is returned, so the image is not loaded twice. When the displayed position changes, the requests
+ * that are no longer relevant can be cancelled individually with {@link #retain(IntPredicate)}, while the requests
+ * that are still needed continue. The future of a cancelled request completes exceptionally.
+ * <p>
+ * The pending requests are not executed in the order in which they were made, but by their distance from the
+ * displayed file (see {@link #setPosition(int, boolean, int)}). The files ahead in the direction of travel are
+ * preferred to the files behind and the displayed file always comes first. The distance is evaluated when a thread
+ * takes the next request, so the pending requests are re-ranked immediately when the position changes.
+ *
+ * @author Jaka Bobnar
+ *
+ */
+public final class LoadingService {
+
+    /**
+     * Loader loads the image from the file into a slot.
+     *
+     * @author Jaka Bobnar
+     *
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * Loads the image from the given file and scales it to the given size.
+         *
+         * @param file the file to load
+         * @param fast true to load the image fast or false to load it in full quality
+         * @param width the width of the canvas
+         * @param height the height of the canvas
+         * @param scaleFast true to use fast scaling or false for high quality scaling
+         * @return the loaded slot or null if the loading was cancelled
+         */
+        ImageSlot load(File file, boolean fast, int width, int height, boolean scaleFast);
+    }
+
+    private final class Request {
+        final int index;
+        final long queued = System.nanoTime();
+        final File file;
+        final boolean fast;
+        final int width;
+        final int height;
+        final boolean scaleFast;
+        final CompletableFuture<ImageSlot> result = new CompletableFuture<>();
+        final FutureTask<ImageSlot> task;
+
+        Request(int index, File file, boolean fast, int width, int height, boolean scaleFast) {
+            this.index = index;
+            this.file = file;
+            this.fast = fast;
+            this.width = width;
+            this.height = height;
+            this.scaleFast = scaleFast;
+            this.task = new FutureTask<ImageSlot>(() -> loader.load(file,fast,width,height,scaleFast)) {
+                @Override
+                protected void done() {
+                    requests.remove(index,Request.this);
+                    try {
+                        if (isCancelled() || Thread.currentThread().isInterrupted()) {
+                            result.cancel(false);
+                        } else {
+                            result.complete(get());
+                        }
+                    } catch (ExecutionException e) {
+                        result.completeExceptionally(e.getCause());
+                    } catch (InterruptedException | RuntimeException e) {
+                        result.completeExceptionally(e);
+                    }
+                }
+            };
+        }
+
+        boolean matches(File file, boolean fast, int width, int height, boolean scaleFast) {
+            return this.file.equals(file) && this.fast == fast && this.width == width && this.height == height
+                    && this.scaleFast == scaleFast;
+        }
+    }
+
+    private final Loader loader;
+    private final ImageExecutor executor;
+    private final Map<Integer, Request> requests = new ConcurrentHashMap<>();
+    // The requests that wait for a thread; guarded by itself
+    private final List<Request> pending = new ArrayList<>();
+    private volatile int position;
+    private volatile boolean forward = true;
+    private volatile int cycleLength;
+    // Statistics of the time that the requests spent in the queue; guarded by pending
+    private long executed;
+    private long totalWaitTime;
+    private long maxWaitTime;
+
+    /**
+     * Constructs a new service.
+     *
+     * @param name the name of the loading threads
+     * @param threads the number of loading threads
+     * @param loader the loader that loads the images
+     */
+    public LoadingService(String name, int threads, Loader loader) {
+        this.loader = loader;
+        this.executor = new ImageExecutor(name,threads,new LinkedBlockingQueue<>());
+    }
+
+    /**
+     * Requests the image with the given index to be loaded. If the same image is already being loaded with the same
+     * parameters, the pending future is returned. If another image or the same image with different parameters is being
+     * loaded for that index, that request is cancelled.
+     *
+     * @param index the index of the file in the list of files
+     * @param file the file to load
+     * @param fast true to load the image fast or false to load it in full quality
+     * @param width the width of the canvas
+     * @param height the height of the canvas
+     * @param scaleFast true to use fast scaling or false for high quality scaling
+     * @return the future that completes with the loaded slot
+     */
+    public CompletableFuture<ImageSlot> load(int index, File file, boolean fast, int width, int height,
+            boolean scaleFast) {
+        Request request = requests.get(index);
+        if (request != null && request.matches(file,fast,width,height,scaleFast)) {
+            return request.result;
+        }
+        Request newRequest = new Request(index,file,fast,width,height,scaleFast);
+        request = requests.put(index,newRequest);
+        if (request != null) {
+            cancel(request);
+        }
+        synchronized (pending) {
+            pending.add(newRequest);
+        }
+        executor.execute(this::runNext);
+        return newRequest.result;
+    }
+
+    /**
+     * Sets the position of the displayed file, which determines the order in which the pending requests are
+     * executed. The displayed file comes first, followed by the files closest to it, where a file ahead in the
+     * direction of travel is preferred to a file behind at the same distance.
+     *
+     * @param index the index of the displayed file
+     * @param forward true if moving forward or false if moving backward
+     * @param cycleLength the number of files if the files are cycled (the last file is followed by the first one) or 0
+     *            if they are not
+     */
+    public void setPosition(int index, boolean forward, int cycleLength) {
+        this.position = index;
+        this.forward = forward;
+        this.cycleLength = cycleLength;
+    }
+
+    /**
+     * Returns the number of requests that are waiting for a thread.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Returns the average time that the executed requests spent waiting in the queue.
+     *
+     * @return the average wait time in milliseconds
+     */
+    public double getAverageWaitTime() {
+        synchronized (pending) {
+            return executed == 0 ? 0 : totalWaitTime / 1e6 / executed;
+        }
+    }
+
+    /**
+     * Returns the longest time that an executed request spent waiting in the queue.
+     *
+     * @return the maximum wait time in milliseconds
+     */
+    public double getMaxWaitTime() {
+        synchronized (pending) {
+            return maxWaitTime / 1e6;
+        }
+    }
+
+    /**
+     * Cancels all requests for which the predicate returns false. The requests that are still loading are
+     * interrupted.
+     *
+     * @param relevant the predicate which receives the index of the file and returns true if the request should be
+     *            kept
+     */
+    public void retain(IntPredicate relevant) {
+        requests.forEach((index, request) -> {
+            if (!relevant.test(index)) {
+                cancel(request);
+            }
+        });
+    }
+
+    /**
+     * Cancels all requests.
+     */
+    public void cancelAll() {
+        retain(index -> false);
+    }
+
+    /**
+     * Cancels all requests and stops the loading threads.
+     */
+    public void dispose() {
+        cancelAll();
+        executor.shutdownNow();
+    }
+
+    private void cancel(Request request) {
+        request.task.cancel(true);
+        synchronized (pending) {
+            pending.remove(request);
+        }
+    }
+
+    /**
+     * Executes the pending request with the highest priority. The executor receives one call for every request, but
+     * which request is executed is decided only when a thread becomes available.
+     */
+    private void runNext() {
+        Request next = null;
+        synchronized (pending) {
+            int best = Integer.MAX_VALUE;
+            // the requests are in the order of arrival, so the older one wins among the equally ranked requests
+            for (Request request : pending) {
+                int rank = rank(request.index);
+                if (rank < best) {
+                    best = rank;
+                    next = request;
+                }
+            }
+            if (next == null) {
+                // the request was cancelled
+                return;
+            }
+            pending.remove(next);
+            long wait = System.nanoTime() - next.queued;
+            executed++;
+            totalWaitTime += wait;
+            maxWaitTime = Math.max(maxWaitTime,wait);
+        }
+        next.task.run();
+    }
+
+    /**
+     * Returns the rank of the file with the given index; the lower the rank, the sooner the file is loaded.
+     *
+     * @param index the index of the file
+     * @return the rank of the file
+     */
+    private int rank(int index) {
+        int distance = index - position;
+        int length = cycleLength;
+        if (length > 0) {
+            // take the shorter way around
+            distance %= length;
+            if (distance > length / 2) {
+                distance -= length;
+            } else if (distance < -length / 2) {
+                distance += length;
+            }
+        }
+        if (distance == 0) {
+            return 0;
+        }
+        boolean ahead = forward ? distance > 0 : distance < 0;
+        int absolute = Math.abs(distance);
+        // a file behind counts as twice as far and loses the tie with a file ahead
+        return ahead ? 2 * absolute : 4 * absolute + 1;
+    }
+}
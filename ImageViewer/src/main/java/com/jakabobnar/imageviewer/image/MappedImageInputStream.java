@@ -0,0 +1,261 @@
+/*
+ * (C) Copyright 2016 Jaka Bobnar. All rights reserved.
+ */
+package com.jakabobnar.imageviewer.image;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+
+/**
+ * MappedImageInputStream is an image input stream, which reads the file through memory mapped buffers. The bytes are
+ * read directly from the operating system's page cache, so the file does not have to be copied to the heap before
+ * decoding. The file is mapped in chunks of 1 GB, which are mapped lazily when first accessed, so files larger than
+ * 2 GB can also be read.
+ * <p>
+ * The stream may be closed by a different thread than the one reading from it (for example when the loading is
+ * cancelled). The mapped buffers are therefore released only when no read is in progress: if the stream is closed
+ * during a read, the last reader releases them after it has finished. A read that starts after the stream has been
+ * closed throws an {@link IOException}.
+ *
+ * @author Jaka Bobnar
+ *
+ */
+public final class MappedImageInputStream extends ImageInputStreamImpl {
+
+    private static final long CHUNK_SIZE = 1L << 30;
+    // Unsafe and its invokeCleaner method, which release the mapped buffers on Java 9 and later; null on Java 8
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = type.getMethod("invokeCleaner",ByteBuffer.class);
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+        } catch (Exception | LinkageError e) {
+            // Java 8, where the buffer's cleaner is used instead
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final FileChannel channel;
+    private final long length;
+    private final MappedByteBuffer[] chunks;
+    // The number of reads in progress and whether the stream has been closed; guarded by this
+    private int readers;
+    private boolean closing;
+    private boolean released;
+
+    /**
+     * Constructs a new stream, which reads from the given file.
+     *
+     * @param file the file to read
+     * @throws IOException if the file could not be opened
+     */
+    public MappedImageInputStream(File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(),StandardOpenOption.READ);
+        this.length = channel.size();
+        this.chunks = new MappedByteBuffer[(int) ((length + CHUNK_SIZE - 1) / CHUNK_SIZE)];
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javax.imageio.stream.ImageInputStreamImpl#read()
+     */
+    @Override
+    public int read() throws IOException {
+        enter();
+        try {
+            if (streamPos >= length) {
+                return -1;
+            }
+            bitOffset = 0;
+            int value = chunk(streamPos).get((int) (streamPos % CHUNK_SIZE)) & 0xFF;
+            streamPos++;
+            return value;
+        } finally {
+            exit();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javax.imageio.stream.ImageInputStreamImpl#read(byte[], int, int)
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException("off=" + off + ", len=" + len + ", length=" + b.length);
+        }
+        enter();
+        try {
+            if (len == 0) {
+                return 0;
+            }
+            if (streamPos >= length) {
+                return -1;
+            }
+            bitOffset = 0;
+            int total = 0;
+            while (total < len && streamPos < length) {
+                int position = (int) (streamPos % CHUNK_SIZE);
+                int n = (int) Math.min(len - total,Math.min(CHUNK_SIZE - position,length - streamPos));
+                // duplicate, because the position of the shared chunk must not change
+                ByteBuffer buffer = chunk(streamPos).duplicate();
+                buffer.position(position);
+                buffer.get(b,off + total,n);
+                total += n;
+                streamPos += n;
+            }
+            return total;
+        } finally {
+            exit();
+        }
+    }
+
+    /**
+     * Loads the contents of the whole file into the page cache, so that the subsequent reads do not wait for the disk.
+     *
+     * @throws IOException if the file could not be mapped
+     */
+    public void load() throws IOException {
+        enter();
+        try {
+            for (long position = 0; position < length; position += CHUNK_SIZE) {
+                chunk(position).load();
+            }
+        } finally {
+            exit();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javax.imageio.stream.ImageInputStreamImpl#length()
+     */
+    @Override
+    public long length() {
+        return length;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see javax.imageio.stream.ImageInputStreamImpl#close()
+     */
+    @Override
+    public void close() throws IOException {
+        super.close();
+        synchronized (this) {
+            closing = true;
+            if (readers > 0) {
+                // the last reader releases the buffers
+                return;
+            }
+        }
+        release();
+    }
+
+    /**
+     * Registers a read that is about to start. The buffers are not released until the read is finished.
+     *
+     * @throws IOException if the stream has been closed
+     */
+    private synchronized void enter() throws IOException {
+        if (closing) {
+            throw new IOException("closed");
+        }
+        readers++;
+    }
+
+    /**
+     * Registers the end of a read. If the stream was closed during the read and this is the last reader, the buffers
+     * are released.
+     *
+     * @throws IOException if the channel could not be closed
+     */
+    private void exit() throws IOException {
+        synchronized (this) {
+            readers--;
+            if (!closing || readers > 0) {
+                return;
+            }
+        }
+        release();
+    }
+
+    /**
+     * Unmaps the buffers and closes the channel. Called only when the stream is closed and no read is in progress.
+     *
+     * @throws IOException if the channel could not be closed
+     */
+    private void release() throws IOException {
+        synchronized (this) {
+            if (released) {
+                return;
+            }
+            released = true;
+        }
+        for (int i = 0; i < chunks.length; i++) {
+            unmap(chunks[i]);
+            chunks[i] = null;
+        }
+        channel.close();
+    }
+
+    private MappedByteBuffer chunk(long position) throws IOException {
+        int index = (int) (position / CHUNK_SIZE);
+        if (chunks[index] == null) {
+            long start = index * CHUNK_SIZE;
+            chunks[index] = channel.map(MapMode.READ_ONLY,start,Math.min(CHUNK_SIZE,length - start));
+        }
+        return chunks[index];
+    }
+
+    /**
+     * Releases the mapping immediately rather than waiting for the garbage collector. Otherwise the file stays locked
+     * (on Windows) and the address space is occupied until the buffer is collected. On Java 8 the buffer's cleaner
+     * is invoked directly; on Java 9 and later the cleaner is not accessible and the buffer is released through
+     * {@code Unsafe.invokeCleaner}. If neither is available, the buffer is left to the garbage collector. The buffer
+     * must not be accessed after it has been released, which is why this is only called when no read is in progress.
+     *
+     * @param buffer the buffer to release
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(UNSAFE,buffer);
+                return;
+            }
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception | LinkageError e) {
+            // ignore, the buffer will be released by the garbage collector
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * (C) Copyright 2016 Jaka Bobnar. All rights reserved.
+ */
+package com.jakabobnar.imageviewer.image;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * MetadataCache is a bounded cache of the EXIF data read from the image files. The data are keyed by the path, last
+ * modification time and length of the file, so a modified file is always read again. When the number of entries
+ * exceeds the maximum, the least recently used entries are removed. If the cache is persistent, the entries are loaded
+ * from the cache file when the cache is first used and stored back to the file by {@link #save()}, so that the data
+ * survive between sessions. The cache is thread safe.
+ *
+ * @author Jaka Bobnar
+ *
+ */
+public final class MetadataCache {
+
+    /** The default file where the metadata are stored (next to the preview cache) */
+    public static final File DEFAULT_FILE = new File(new File(System.getProperty("user.home"),".imageviewer-cache"),
+            "metadata");
+    private static final int VERSION = 1;
+    // Longer values (e.g. binary maker notes) are not worth storing
+    private static final int MAX_VALUE_LENGTH = 4096;
+
+    private final File cacheFile;
+    private final int maxEntries;
+    private final Map<String, EXIFData> entries;
+    private boolean persistent = true;
+    private boolean loaded;
+    private boolean modified;
+
+    /**
+     * Constructs a new cache.
+     *
+     * @param cacheFile the file where the cache is stored between sessions
+     * @param maxEntries the maximum number of cached entries
+     */
+    public MetadataCache(File cacheFile, int maxEntries) {
+        this.cacheFile = cacheFile;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, EXIFData>(256,0.75f,true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, EXIFData> eldest) {
+                return size() > MetadataCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Sets whether the cache is stored to the file between sessions. If the cache is not persistent, the existing
+     * cache file is deleted.
+     *
+     * @param persistent true if the cache should be persistent or false otherwise
+     */
+    public synchronized void setPersistent(boolean persistent) {
+        this.persistent = persistent;
+        if (!persistent) {
+            try {
+                Files.deleteIfExists(cacheFile.toPath());
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Returns the cached data for the given file. The returned data must not be modified.
+     *
+     * @param file the file
+     * @return the cached data or null if the file is not cached
+     */
+    public synchronized EXIFData get(File file) {
+        load();
+        return entries.get(toKey(file));
+    }
+
+    /**
+     * Puts the data of the given file into the cache.
+     *
+     * @param file the file
+     * @param data the data read from the file
+     */
+    public synchronized void put(File file, EXIFData data) {
+        load();
+        entries.put(toKey(file),data);
+        modified = true;
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        modified = true;
+    }
+
+    /**
+     * Stores the cache to the cache file, if the cache is persistent and it has been modified since it was loaded.
+     */
+    public synchronized void save() {
+        if (!persistent || !modified) {
+            return;
+        }
+        File folder = cacheFile.getParentFile();
+        if (!folder.exists() && !folder.mkdirs()) {
+            return;
+        }
+        File tmp = new File(folder,cacheFile.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            // the least recently used first, so that the order is preserved when loading
+            for (Map.Entry<String, EXIFData> e : entries.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeInt(e.getValue().size());
+                e.getValue().forEach((tag, value) -> {
+                    try {
+                        out.writeUTF(truncate(tag));
+                        out.writeUTF(truncate(value));
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+        } catch (IOException | UncheckedIOException e) {
+            return;
+        }
+        try {
+            Files.move(tmp.toPath(),cacheFile.toPath(),StandardCopyOption.REPLACE_EXISTING);
+            modified = false;
+        } catch (IOException e) {
+            // ignore, try next time
+        }
+    }
+
+    /**
+     * Loads the entries from the cache file if the cache is persistent and has not been loaded yet. Call only when
+     * holding the lock.
+     */
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!persistent || !cacheFile.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(cacheFile.toPath())))) {
+            if (in.readInt() != VERSION) {
+                return;
+            }
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                String key = in.readUTF();
+                int tags = in.readInt();
+                EXIFData data = new EXIFData();
+                for (int j = 0; j < tags; j++) {
+                    data.put(in.readUTF(),in.readUTF());
+                }
+                entries.put(key,data);
+            }
+        } catch (IOException | RuntimeException e) {
+            // the file is corrupted, whatever was read is still good
+            modified = true;
+        }
+    }
+
+    private static String truncate(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.length() > MAX_VALUE_LENGTH ? value.substring(0,MAX_VALUE_LENGTH) : value;
+    }
+
+    private static String toKey(File file) {
+        return file.getAbsolutePath() + '|' + file.lastModified() + '|' + file.length();
+    }
+}
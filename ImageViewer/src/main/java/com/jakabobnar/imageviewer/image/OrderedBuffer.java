@@ -0,0 +1,153 @@
+/*
+ * (C) Copyright 2016 Jaka Bobnar. All rights reserved.
+ */
+package com.jakabobnar.imageviewer.image;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * OrderedBuffer collects the images that are loaded in parallel, ordered by their index in the list of files. The
+ * loader announces an image with {@link #begin(int)} when it starts loading it and delivers it with
+ * {@link #complete(int, ImageFile)}. The images can be delivered in any order, the buffer does not need to be sorted
+ * and the loaders never wait for each other. The consumer can take the next image after a given index, waiting for it
+ * if it is still being loaded, or the latest image that has already been loaded. The buffer is thread safe.
+ *
+ * @author Jaka Bobnar
+ *
+ */
+public final class OrderedBuffer {
+
+    private final ConcurrentSkipListMap<Integer, CompletableFuture<ImageFile>> images = new ConcurrentSkipListMap<>();
+
+    /**
+     * Announces that the image with the given index is being loaded. The consumer waiting for this index will be
+     * released when the image is completed.
+     *
+     * @param id the index of the image
+     */
+    public void begin(int id) {
+        images.putIfAbsent(id,new CompletableFuture<>());
+    }
+
+    /**
+     * Delivers the loaded image. If the image was removed from the buffer while it was being loaded, it is added
+     * again, so that it can still be used by the consumer.
+     *
+     * @param id the index of the image
+     * @param image the loaded image or null if the image could not be loaded
+     */
+    public void complete(int id, ImageFile image) {
+        CompletableFuture<ImageFile> future = images.get(id);
+        if (future != null) {
+            future.complete(image);
+        } else if (image != null) {
+            images.putIfAbsent(id,CompletableFuture.completedFuture(image));
+        }
+    }
+
+    /**
+     * Removes all images that are before the given index (including the index) and returns the first image that
+     * follows it. If that image is still being loaded, the method blocks until it is completed.
+     *
+     * @param after the index after which the image is requested
+     * @param ascending true if the indices follow in the ascending order or false if in the descending order
+     * @return the next image or null if there is no such image, it could not be loaded or the thread was interrupted
+     */
+    public ImageFile awaitNext(int after, boolean ascending) {
+        if (ascending) {
+            images.headMap(after,true).clear();
+        } else {
+            images.tailMap(after,true).clear();
+        }
+        Map.Entry<Integer, CompletableFuture<ImageFile>> entry = ascending ? images.firstEntry()
+                : images.lastEntry();
+        if (entry == null) {
+            return null;
+        }
+        try {
+            return entry.getValue().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        } finally {
+            images.remove(entry.getKey(),entry.getValue());
+        }
+    }
+
+    /**
+     * Removes and returns the image with the highest (or lowest) index among the images that have already been
+     * loaded. The images that are still being loaded are ignored.
+     *
+     * @param ascending true for the image with the highest index or false for the lowest index
+     * @return the latest loaded image or null if none has been loaded yet
+     */
+    public ImageFile pollLatest(boolean ascending) {
+        for (Map.Entry<Integer, CompletableFuture<ImageFile>> entry : ascending ? images.descendingMap().entrySet()
+                : images.entrySet()) {
+            CompletableFuture<ImageFile> future = entry.getValue();
+            if (future.isDone() && images.remove(entry.getKey(),future)) {
+                ImageFile image = future.getNow(null);
+                if (image != null) {
+                    return image;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the lowest index in the buffer, including the images that are still being loaded.
+     *
+     * @return the lowest index or -1 if the buffer is empty
+     */
+    public int firstId() {
+        Map.Entry<Integer, ?> entry = images.firstEntry();
+        return entry == null ? -1 : entry.getKey();
+    }
+
+    /**
+     * Returns the highest index in the buffer, including the images that are still being loaded.
+     *
+     * @return the highest index or -1 if the buffer is empty
+     */
+    public int lastId() {
+        Map.Entry<Integer, ?> entry = images.lastEntry();
+        return entry == null ? -1 : entry.getKey();
+    }
+
+    /**
+     * Returns the number of images in the buffer, including the images that are still being loaded.
+     *
+     * @return the number of images
+     */
+    public int size() {
+        return images.size();
+    }
+
+    /**
+     * Returns true if there are no images in the buffer.
+     *
+     * @return true if the buffer is empty or false otherwise
+     */
+    public boolean isEmpty() {
+        return images.isEmpty();
+    }
+
+    /**
+     * Removes all images from the buffer. The consumer waiting for an image is released and receives null.
+     */
+    public void clear() {
+        while (true) {
+            Map.Entry<Integer, CompletableFuture<ImageFile>> entry = images.pollFirstEntry();
+            if (entry == null) {
+                return;
+            }
+            entry.getValue().complete(null);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * (C) Copyright 2016 Jaka Bobnar. All rights reserved.
+ */
+package com.jakabobnar.imageviewer.image;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javax.imageio.ImageIO;
+
+import com.jakabobnar.imageviewer.util.ImageExecutor;
+
+/**
+ * PreviewCache is a persistent on-disk cache of screen sized previews. The previews are stored as JPEG files in the
+ * cache folder and are keyed by the path, length and last modification time of the source file and the size of the
+ * preview. When the total size of the cache exceeds the maximum size, the least recently used previews are removed.
+ *
+ * @author Jaka Bobnar
+ *
+ */
+public final class PreviewCache {
+
+    /** The folder where the cached previews are stored (the ~/.imageviewer is already used by the settings file) */
+    public static final File DEFAULT_FOLDER = new File(new File(System.getProperty("user.home"),".imageviewer-cache"),
+            "previews");
+    // Only cache previews of files that are large enough; small files are decoded faster than the preview is read
+    private static final long MIN_SOURCE_LENGTH = 2 * 1024 * 1024;
+    private static final String SUFFIX = ".jpg";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final File folder;
+    private volatile long maxSize;
+    private long size;
+    // Cached entries ordered by access, the eldest entry is the least recently used one
+    private Map<String, Long> entries;
+    private final ExecutorService writer = new ImageExecutor("PreviewCache",1,new LinkedBlockingQueue<>(32));
+
+    /**
+     * Constructs a new preview cache, which stores the previews into the given folder.
+     *
+     * @param folder the folder where the previews are stored
+     * @param maxSize the maximum size of the cache in bytes
+     */
+    public PreviewCache(File folder, long maxSize) {
+        this.folder = folder;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Sets the maximum size of the cache. If the cache is currently larger than the given size, the least recently
+     * used entries are removed.
+     *
+     * @param maxSize the maximum size in bytes
+     */
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        writer.execute(() -> {
+            synchronized (this) {
+                evict();
+            }
+        });
+    }
+
+    /**
+     * Returns the cached preview for the given file, if it exists and if the file has not been modified since the
+     * preview was stored.
+     *
+     * @param file the source file of the preview
+     * @param width the width that the preview was created for
+     * @param height the height that the preview was created for
+     * @return the preview or null if no valid preview exists
+     */
+    public BufferedImage get(File file, int width, int height) {
+        if (file.length() < MIN_SOURCE_LENGTH) {
+            return null;
+        }
+        String key = toKey(file,width,height);
+        File entry = new File(folder,key);
+        synchronized (this) {
+            if (getEntries().get(key) == null) {
+                return null;
+            }
+        }
+        try {
+            BufferedImage image = ImageIO.read(entry);
+            if (image != null) {
+                // touch the file, so the access order is preserved for the next session
+                entry.setLastModified(System.currentTimeMillis());
+            }
+            return image;
+        } catch (IOException e) {
+            remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the preview of the given file into the cache. The preview is written in a background thread, so this
+     * method returns immediately. If the writer is busy, the preview is not stored.
+     *
+     * @param file the source file of the preview
+     * @param width the width that the preview was created for
+     * @param height the height that the preview was created for
+     * @param preview the preview to store
+     */
+    public void put(File file, int width, int height, BufferedImage preview) {
+        if (maxSize <= 0 || preview == null || file.length() < MIN_SOURCE_LENGTH) {
+            return;
+        }
+        String key = toKey(file,width,height);
+        writer.execute(() -> {
+            File entry = new File(folder,key);
+            try {
+                if (!folder.exists() && !folder.mkdirs()) {
+                    return;
+                }
+                BufferedImage image = preview;
+                if (image.getType() != BufferedImage.TYPE_INT_RGB && image.getType() != BufferedImage.TYPE_3BYTE_BGR) {
+                    // JPEG writer does not support alpha channels or custom image types
+                    image = new BufferedImage(preview.getWidth(),preview.getHeight(),BufferedImage.TYPE_INT_RGB);
+                    Graphics2D g = image.createGraphics();
+                    g.drawImage(preview,0,0,null);
+                    g.dispose();
+                }
+                File tmp = new File(folder,key + ".tmp");
+                if (!ImageIO.write(image,"jpg",tmp)) {
+                    Files.deleteIfExists(tmp.toPath());
+                    return;
+                }
+                Files.move(tmp.toPath(),entry.toPath(),StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                synchronized (this) {
+                    Long old = getEntries().put(key,entry.length());
+                    size += entry.length() - (old == null ? 0 : old);
+                    evict();
+                }
+            } catch (IOException e) {
+                // ignore, the preview will be recreated the next time
+            }
+        });
+    }
+
+    /**
+     * Removes all previews from the cache.
+     */
+    public synchronized void clear() {
+        getEntries().keySet().forEach(k -> new File(folder,k).delete());
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * Stop the background writer. Previews that have not been written yet are discarded.
+     */
+    public void dispose() {
+        writer.shutdownNow();
+    }
+
+    private synchronized void remove(String key) {
+        Long length = getEntries().remove(key);
+        if (length != null) {
+            size -= length;
+            new File(folder,key).delete();
+        }
+    }
+
+    /**
+     * Remove the least recently used entries until the cache fits into the maximum size. Call only when holding the
+     * lock.
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> it = getEntries().entrySet().iterator();
+        while (size > maxSize && it.hasNext()) {
+            Map.Entry<String, Long> e = it.next();
+            if (new File(folder,e.getKey()).delete() || !new File(folder,e.getKey()).exists()) {
+                size -= e.getValue();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the cached previews. The index is built the first time it is requested from the contents
+     * of the cache folder, where the last modification time of the files defines the access order. Call only when
+     * holding the lock.
+     *
+     * @return the index of entries
+     */
+    private Map<String, Long> getEntries() {
+        if (entries == null) {
+            entries = new LinkedHashMap<>(256,0.75f,true);
+            File[] files = folder.listFiles((dir, name) -> name.endsWith(SUFFIX));
+            if (files != null) {
+                Arrays.sort(files,Comparator.comparingLong(File::lastModified));
+                for (File f : files) {
+                    long length = f.length();
+                    entries.put(f.getName(),length);
+                    size += length;
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Creates the key (the name of the cache file) for the given file and preview size.
+     *
+     * @param file the source file
+     * @param width the preview width
+     * @param height the preview height
+     * @return the key
+     */
+    private static String toKey(File file, int width, int height) {
+        String id = file.getAbsolutePath() + '|' + file.length() + '|' + file.lastModified() + '|' + width + 'x'
+                + height;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(id.getBytes(StandardCharsets.UTF_8));
+            char[] chars = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                chars[2 * i] = HEX[(digest[i] >> 4) & 0xF];
+                chars[2 * i + 1] = HEX[digest[i] & 0xF];
+            }
+            return new String(chars) + SUFFIX;
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-1 is always available
+            return Integer.toHexString(id.hashCode()) + SUFFIX;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * (C) Copyright 2016 Jaka Bobnar. All rights reserved.
+ */
+package com.jakabobnar.imageviewer.image;
+
+/**
+ * ReadAhead decides how many images should be loaded in advance in the direction of travel. It observes how quickly
+ * the user advances through the images and how long it takes to load and scale a single image. If the user advances
+ * faster than the images can be loaded, the look-ahead grows, so that the images are ready when needed. When the
+ * direction changes or the user stops advancing, the look-ahead is reset. The look-ahead is also limited by the amount
+ * of memory available to hold the loaded images.
+ *
+ * @author Jaka Bobnar
+ *
+ */
+public final class ReadAhead {
+
+    // Weight of the latest measurement in the moving averages
+    private static final double SMOOTHING = 0.3;
+    // If the time between two advances is longer than this, the images are not advanced through in a sequence
+    private static final long IDLE_INTERVAL = 15_000;
+
+    private int maxLookAhead;
+    private boolean forward = true;
+    private int streak;
+    private long lastAdvance;
+    private double advanceInterval;
+    private double loadTime;
+    private double slotSize;
+
+    /**
+     * Constructs a new read ahead planner.
+     *
+     * @param maxLookAhead the maximum number of images to load ahead
+     */
+    public ReadAhead(int maxLookAhead) {
+        this.maxLookAhead = maxLookAhead;
+    }
+
+    /**
+     * Sets the maximum number of images that are loaded ahead in the direction of travel.
+     *
+     * @param maxLookAhead the maximum look-ahead
+     */
+    public synchronized void setMaxLookAhead(int maxLookAhead) {
+        this.maxLookAhead = maxLookAhead;
+    }
+
+    /**
+     * Records an advance to the next or previous image.
+     *
+     * @param forward true if advanced to the next image or false if advanced to the previous image
+     */
+    public synchronized void advanced(boolean forward) {
+        long now = System.currentTimeMillis();
+        long interval = now - lastAdvance;
+        lastAdvance = now;
+        if (forward != this.forward || interval > IDLE_INTERVAL) {
+            this.forward = forward;
+            streak = 0;
+            advanceInterval = 0;
+            return;
+        }
+        streak++;
+        advanceInterval = advanceInterval == 0 ? interval
+                : SMOOTHING * interval + (1 - SMOOTHING) * advanceInterval;
+    }
+
+    /**
+     * Records the time it took to load and scale an image and the memory occupied by the image.
+     *
+     * @param millis the duration of loading and scaling in milliseconds
+     * @param bytes the number of bytes occupied by the loaded images
+     */
+    public synchronized void loaded(long millis, long bytes) {
+        loadTime = loadTime == 0 ? millis : SMOOTHING * millis + (1 - SMOOTHING) * loadTime;
+        slotSize = slotSize == 0 ? bytes : SMOOTHING * bytes + (1 - SMOOTHING) * slotSize;
+    }
+
+    /**
+     * Resets the observed advancing pattern (e.g. after jumping to a different image).
+     */
+    public synchronized void reset() {
+        streak = 0;
+        advanceInterval = 0;
+    }
+
+    /**
+     * Returns true if the last advance was forward or false if it was backward.
+     *
+     * @return the direction of travel
+     */
+    public synchronized boolean isForward() {
+        return forward;
+    }
+
+    /**
+     * Returns the number of images that should be loaded ahead of the current image in the direction of travel. The
+     * value is always between 1 and the maximum look-ahead (or 0 if the read ahead is disabled).
+     *
+     * @param availableMemory the number of bytes that are available for the loaded images
+     * @return the number of images to load ahead
+     */
+    public synchronized int getLookAhead(long availableMemory) {
+        if (maxLookAhead <= 1) {
+            return Math.max(0,maxLookAhead);
+        }
+        int ahead = 1;
+        if (streak > 0) {
+            if (advanceInterval > 0 && loadTime > 0) {
+                // enough images to cover the loading time at the current pace, plus one for the jitter
+                ahead = (int) Math.ceil(loadTime / advanceInterval) + 1;
+            }
+            // the longer the user advances in the same direction, the more likely it is that it continues
+            ahead = Math.max(ahead,Math.min(streak + 1,maxLookAhead));
+        }
+        if (slotSize > 0) {
+            ahead = (int) Math.min(ahead,availableMemory / slotSize);
+        }
+        return Math.max(1,Math.min(ahead,maxLookAhead));
+    }
+}
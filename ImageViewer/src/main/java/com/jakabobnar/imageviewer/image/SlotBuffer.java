@@ -0,0 +1,173 @@
+/*
+ * (C) Copyright 2016 Jaka Bobnar. All rights reserved.
+ */
+package com.jakabobnar.imageviewer.image;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * SlotBuffer holds the slots of the images around the displayed image. The buffer never changes in place: every update
+ * creates a new array of slots, which replaces the previous one with a single atomic swap. The buffer is therefore
+ * thread safe without locking; readers always see a complete slot and the rotation of the buffer cannot interleave
+ * with an update of a single slot. The buffers are small (a few slots), so copying them is cheaper than locking.
+ * <p>
+ * An index that has not been filled yet contains an empty slot (see {@link ImageSlot#empty(File)}), never null.
+ *
+ * @author Jaka Bobnar
+ *
+ */
+public final class SlotBuffer {
+
+    private final AtomicReference<ImageSlot[]> slots;
+
+    /**
+     * Constructs a new buffer with the given number of empty slots.
+     *
+     * @param size the number of slots
+     */
+    public SlotBuffer(int size) {
+        ImageSlot[] array = new ImageSlot[size];
+        Arrays.fill(array,ImageSlot.empty(null));
+        this.slots = new AtomicReference<>(array);
+    }
+
+    /**
+     * Returns the number of slots in this buffer.
+     *
+     * @return the number of slots
+     */
+    public int size() {
+        return slots.get().length;
+    }
+
+    /**
+     * Returns the slot at the given index.
+     *
+     * @param index the index of the slot
+     * @return the slot (never null)
+     */
+    public ImageSlot get(int index) {
+        return slots.get()[index];
+    }
+
+    /**
+     * Puts the slot at the given index, regardless of what the index contains.
+     *
+     * @param index the index of the slot
+     * @param slot the new slot
+     */
+    public void set(int index, ImageSlot slot) {
+        update(array -> {
+            array[index] = slot;
+            return array;
+        });
+    }
+
+    /**
+     * Puts the slot at the given index, but only if the index holds the same file as the new slot. If the buffer was
+     * rotated or the index was assigned a different file while the slot was being loaded, the slot is discarded.
+     *
+     * @param index the index of the slot
+     * @param slot the new slot
+     * @return true if the slot was put into the buffer or false if it was discarded
+     */
+    public boolean replace(int index, ImageSlot slot) {
+        return update(array -> {
+            if (!Objects.equals(array[index].file,slot.file)) {
+                return null;
+            }
+            array[index] = slot;
+            return array;
+        });
+    }
+
+    /**
+     * Puts the slot at the given index, but only if the index still holds the expected slot (compared by identity).
+     *
+     * @param index the index of the slot
+     * @param expected the slot that should be at the index
+     * @param slot the new slot
+     * @return true if the slot was put into the buffer or false if the index holds a different slot
+     */
+    public boolean compareAndSet(int index, ImageSlot expected, ImageSlot slot) {
+        return update(array -> {
+            if (array[index] != expected) {
+                return null;
+            }
+            array[index] = slot;
+            return array;
+        });
+    }
+
+    /**
+     * Assigns the file to the slot at the given index. If the index already holds that file, the slot is kept,
+     * otherwise it is replaced by an empty slot for the file.
+     *
+     * @param index the index of the slot
+     * @param file the file that belongs to the index
+     */
+    public void setFile(int index, File file) {
+        update(array -> {
+            if (Objects.equals(array[index].file,file)) {
+                return null;
+            }
+            array[index] = ImageSlot.empty(file);
+            return array;
+        });
+    }
+
+    /**
+     * Moves all slots by one index. When moving forward the first slot is dropped and the last index receives an
+     * empty slot for the incoming file; when moving backward the last slot is dropped and the first index receives
+     * the empty slot.
+     *
+     * @param forward true to move the slots towards the lower indices or false to move them towards the higher indices
+     * @param incoming the file that enters the buffer
+     */
+    public void rotate(boolean forward, File incoming) {
+        update(array -> {
+            int n = array.length;
+            if (forward) {
+                System.arraycopy(array,1,array,0,n - 1);
+                array[n - 1] = ImageSlot.empty(incoming);
+            } else {
+                System.arraycopy(array,0,array,1,n - 1);
+                array[0] = ImageSlot.empty(incoming);
+            }
+            return array;
+        });
+    }
+
+    /**
+     * Replaces all slots with empty slots.
+     */
+    public void clear() {
+        update(array -> {
+            Arrays.fill(array,ImageSlot.empty(null));
+            return array;
+        });
+    }
+
+    /**
+     * Applies the change to a copy of the current slots and swaps the copy in. If the slots were swapped by another
+     * thread in the mean time, the change is applied again to the new slots.
+     *
+     * @param change the function that changes the copy and returns it, or returns null if nothing should change
+     * @return true if the slots were changed or false otherwise
+     */
+    private boolean update(UnaryOperator<ImageSlot[]> change) {
+        while (true) {
+            ImageSlot[] current = slots.get();
+            ImageSlot[] changed = change.apply(current.clone());
+            if (changed == null) {
+                return false;
+            } else if (slots.compareAndSet(current,changed)) {
+                return true;
+            }
+        }
+    }
+}
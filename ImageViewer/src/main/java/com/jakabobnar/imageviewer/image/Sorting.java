@@ -4,7 +4,9 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.stream.IntStream;
 
 import com.drew.imaging.ImageProcessingException;
 
@@ -16,7 +18,8 @@ import com.drew.imaging.ImageProcessingException;
  *
  */
 public enum Sorting {
-    NAME("File Name"), CREATION_DATE("Creation Date"), MODIFICATION_DATE("Modification Date"), DATE_TAKEN("Date Taken");
+    NAME("File Name"), NATURAL_NAME("File Name (Natural)"), CREATION_DATE("Creation Date"),
+    MODIFICATION_DATE("Modification Date"), DATE_TAKEN("Date Taken");
 
     private final String name;
 
@@ -31,36 +34,166 @@ public enum Sorting {
      * @return the comparator
      */
     public Comparator<File> getComparator() {
-        switch (this) {
+        return getComparator(null);
+    }
 
+    /**
+     * Returns the comparator for this sorting criterion, which takes the attributes of the files from the given index.
+     * The files that are not indexed are compared by reading their attributes from the disk. The index has to be
+     * updated with metadata in order to sort by {@link #DATE_TAKEN} without reading the files. The comparator obtains
+     * the keys on every comparison; use {@link #sort(File[], FolderIndex)} to sort many files.
+     *
+     * @param index the index of the folder that contains the files (can be null)
+     * @return the comparator
+     */
+    public Comparator<File> getComparator(FolderIndex index) {
+        switch (this) {
         case CREATION_DATE:
-            return (a, b) -> {
-                try {
-                    return Files.readAttributes(a.toPath(),BasicFileAttributes.class).creationTime()
-                            .compareTo(Files.readAttributes(b.toPath(),BasicFileAttributes.class).creationTime());
-                } catch (IOException e) {
-                    return 0;
-                    // ignore
-                }
-            };
         case MODIFICATION_DATE:
-            return (a, b) -> Long.compare(a.lastModified(),b.lastModified());
         case DATE_TAKEN:
-            return (a, b) -> {
-                try {
-                    EXIFData adata = ImageUtil.readExifData(a);
-                    EXIFData bdata = ImageUtil.readExifData(b);
-                    return adata.getDateTaken().compareTo(bdata.getDateTaken());
-                } catch (IOException | ImageProcessingException e) {
-                    return 0;
-                    // ignore
-                }
-            };
+            return (a, b) -> Long.compare(getKey(a,index),getKey(b,index));
+        case NATURAL_NAME:
+            return (a, b) -> compareNatural(fold(a.getName()),fold(b.getName()));
         case NAME:
         default:
             return (a, b) -> a.getName().compareToIgnoreCase(b.getName());
+        }
+    }
 
+    /**
+     * Sorts the files according to this criterion. The sorting key of every file is extracted only once, in parallel,
+     * and then the files are sorted by the extracted keys. The order of the files with equal keys is preserved. The
+     * result is the same as sorting with the comparator returned by {@link #getComparator(FolderIndex)}.
+     *
+     * @param files the files to sort
+     * @param index the index of the folder that contains the files (can be null)
+     */
+    public void sort(File[] files, FolderIndex index) {
+        int n = files.length;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
         }
+        if (this == NAME || this == NATURAL_NAME) {
+            String[] keys = new String[n];
+            IntStream.range(0,n).parallel().forEach(i -> keys[i] = fold(files[i].getName()));
+            if (this == NAME) {
+                Arrays.sort(order,(i, j) -> keys[i].compareTo(keys[j]));
+            } else {
+                Arrays.sort(order,(i, j) -> compareNatural(keys[i],keys[j]));
+            }
+        } else {
+            long[] keys = new long[n];
+            IntStream.range(0,n).parallel().forEach(i -> keys[i] = getKey(files[i],index));
+            Arrays.sort(order,(i, j) -> Long.compare(keys[i],keys[j]));
+        }
+        File[] sorted = new File[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = files[order[i]];
+        }
+        System.arraycopy(sorted,0,files,0,n);
+    }
+
+    /**
+     * Returns the sorting key of the given file for the date based criteria. The key is taken from the index if the
+     * file is indexed, otherwise it is read from the file.
+     *
+     * @param file the file
+     * @param index the index (can be null)
+     * @return the key
+     */
+    private long getKey(File file, FolderIndex index) {
+        FolderIndex.Entry entry = index == null ? null : index.get(file);
+        switch (this) {
+        case CREATION_DATE:
+            if (entry != null) {
+                return entry.creationTime;
+            }
+            try {
+                return Files.readAttributes(file.toPath(),BasicFileAttributes.class).creationTime().toMillis();
+            } catch (IOException e) {
+                return 0;
+            }
+        case DATE_TAKEN:
+            if (entry != null && entry.hasMetadata) {
+                return entry.dateTaken;
+            }
+            try {
+                return ImageUtil.readCachedExifData(file).getDateTakenMillis();
+            } catch (IOException | ImageProcessingException e) {
+                // same as for the files without exif
+                return file.lastModified() / 1000 * 1000;
+            }
+        case MODIFICATION_DATE:
+        default:
+            return entry == null ? file.lastModified() : entry.lastModified;
+        }
+    }
+
+    /**
+     * Folds the case of the name in the same way as {@link String#compareToIgnoreCase(String)} does, so that the
+     * folded names can be compared by {@link String#compareTo(String)}.
+     *
+     * @param name the name to fold
+     * @return the folded name
+     */
+    private static String fold(String name) {
+        char[] chars = name.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Compares the names such that the numbers within the names are compared by their numeric values (e.g. img2 comes
+     * before img10).
+     *
+     * @param a the first name
+     * @param b the second name
+     * @return negative if a comes before b, positive if b comes before a, or 0 if the names are equal
+     */
+    static int compareNatural(String a, String b) {
+        int la = a.length();
+        int lb = b.length();
+        int i = 0;
+        int j = 0;
+        while (i < la && j < lb) {
+            char ca = a.charAt(i);
+            char cb = b.charAt(j);
+            if (isDigit(ca) && isDigit(cb)) {
+                // skip the leading zeros, the longer number is larger, numbers of equal length compare by digits
+                int si = i;
+                int sj = j;
+                while (si < la && a.charAt(si) == '0') si++;
+                while (sj < lb && b.charAt(sj) == '0') sj++;
+                int ei = si;
+                int ej = sj;
+                while (ei < la && isDigit(a.charAt(ei))) ei++;
+                while (ej < lb && isDigit(b.charAt(ej))) ej++;
+                int c = Integer.compare(ei - si,ej - sj);
+                for (int k = 0; c == 0 && k < ei - si; k++) {
+                    c = Character.compare(a.charAt(si + k),b.charAt(sj + k));
+                }
+                if (c != 0) {
+                    return c;
+                }
+                i = ei;
+                j = ej;
+            } else if (ca != cb) {
+                return Character.compare(ca,cb);
+            } else {
+                i++;
+                j++;
+            }
+        }
+        int c = Integer.compare(la - i,lb - j);
+        // equal apart from the leading zeros
+        return c == 0 ? a.compareTo(b) : c;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
     }
 
     /**
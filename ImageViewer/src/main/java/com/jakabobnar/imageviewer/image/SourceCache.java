@@ -0,0 +1,189 @@
+/*
+ * (C) Copyright 2016 Jaka Bobnar. All rights reserved.
+ */
+package com.jakabobnar.imageviewer.image;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SourceCache is an in-memory cache of the raw (compressed) contents of the image files. A compressed file is much
+ * smaller than the decoded image, so many more files can be kept in memory than decoded images. When an image is
+ * decoded from the cached bytes, no disk access is needed. The files are keyed by the path and last modification time.
+ * When the total size of the cached files exceeds the maximum size, the least recently used files are evicted.
+ *
+ * @author Jaka Bobnar
+ *
+ */
+public final class SourceCache {
+
+    private final Map<String, byte[]> entries = new LinkedHashMap<>(64,0.75f,true);
+    private long maxSize;
+    private long size;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructs a new cache.
+     *
+     * @param maxSize the maximum size of the cache in bytes
+     */
+    public SourceCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Sets the maximum size of the cache. If the cache is currently larger than the given size, the least recently
+     * used files are evicted.
+     *
+     * @param maxSize the maximum size in bytes
+     */
+    public synchronized void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        evict();
+    }
+
+    /**
+     * Returns the maximum size of the cache in bytes.
+     *
+     * @return the maximum size
+     */
+    public synchronized long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the cached contents of the given file. The returned array must not be modified.
+     *
+     * @param file the file
+     * @return the contents of the file or null if the file is not cached
+     */
+    public synchronized byte[] get(File file) {
+        byte[] data = entries.get(toKey(file,file.lastModified()));
+        if (data == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return data;
+    }
+
+    /**
+     * Returns true if the contents of the given file are cached. The statistics and the order of eviction are not
+     * affected by this method.
+     *
+     * @param file the file
+     * @return true if the file is cached or false otherwise
+     */
+    public synchronized boolean contains(File file) {
+        return entries.containsKey(toKey(file,file.lastModified()));
+    }
+
+    /**
+     * Puts the contents of the file into the cache. If the contents alone are larger than the cache, they are not
+     * stored.
+     *
+     * @param file the file
+     * @param lastModified the last modification time of the file at the time when it was read
+     * @param data the contents of the file
+     */
+    public synchronized void put(File file, long lastModified, byte[] data) {
+        if (data.length > maxSize) {
+            return;
+        }
+        byte[] old = entries.put(toKey(file,lastModified),data);
+        size += data.length - (old == null ? 0 : old.length);
+        evict();
+    }
+
+    /**
+     * Removes the contents of the given file from the cache, regardless of the modification time.
+     *
+     * @param file the file to remove
+     */
+    public synchronized void remove(File file) {
+        String prefix = file.getAbsolutePath() + '|';
+        Iterator<Map.Entry<String, byte[]>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, byte[]> entry = it.next();
+            if (entry.getKey().startsWith(prefix)) {
+                size -= entry.getValue().length;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all files from the cache. The statistics are preserved.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns the number of bytes currently occupied by the cached files.
+     *
+     * @return the size of the cache in bytes
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of requests that were served from the cache.
+     *
+     * @return the number of hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of requests that could not be served from the cache.
+     *
+     * @return the number of misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of files that were evicted, because the cache was full.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("SourceCache[files=%d, size=%d MB, hits=%d, misses=%d, evictions=%d]",entries.size(),
+                size >> 20,hits,misses,evictions);
+    }
+
+    /**
+     * Evict the least recently used files until the cache fits into the maximum size. Call only when holding the lock.
+     */
+    private void evict() {
+        Iterator<byte[]> it = entries.values().iterator();
+        while (size > maxSize && it.hasNext()) {
+            size -= it.next().length;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private static String toKey(File file, long lastModified) {
+        return file.getAbsolutePath() + '|' + lastModified;
+    }
+}
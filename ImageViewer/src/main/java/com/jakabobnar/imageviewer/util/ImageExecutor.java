@@ -3,19 +3,53 @@
  */
 package com.jakabobnar.imageviewer.util;
 
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * ImageExecutor is a thread pool which uses a fixed number of threads and a specific queue. This executor prints the
  * stack trace of any exception that happens during execution.
+ * <p>
+ * The tasks that are pending or running can be cancelled with {@link #cancelAll()}, which does not terminate the
+ * executor. The threads are kept and reused for the tasks that are submitted afterwards, so the executor can be used
+ * for the lifetime of the application.
  *
  * @author Jaka Bobnar
  *
  */
 public class ImageExecutor extends ThreadPoolExecutor {
 
+    /**
+     * Task wraps every task executed by this executor. It remembers the cancellation epoch in which it was submitted,
+     * so that a task which has been taken from the queue just before it was cancelled does not run.
+     */
+    private static final class Task<T> extends FutureTask<T> {
+
+        private final long epoch;
+
+        Task(Callable<T> callable, long epoch) {
+            super(callable);
+            this.epoch = epoch;
+        }
+
+        Task(Runnable runnable, T value, long epoch) {
+            super(runnable,value);
+            this.epoch = epoch;
+        }
+    }
+
+    private final Set<Task<?>> running = ConcurrentHashMap.newKeySet();
+    private final AtomicLong epoch = new AtomicLong();
+
     /**
      * Constructs a new executor.
      *
@@ -27,6 +61,77 @@ public class ImageExecutor extends ThreadPoolExecutor {
         super(size,size,0L,TimeUnit.MILLISECONDS,queue,new ThreadFactory(name),(r, t) -> {/*nothing*/});
     }
 
+    /**
+     * Changes the number of threads used by this executor.
+     *
+     * @param size the number of threads to use
+     */
+    public void setSize(int size) {
+        if (size < getCorePoolSize()) {
+            setCorePoolSize(size);
+            setMaximumPoolSize(size);
+        } else if (size > getCorePoolSize()) {
+            setMaximumPoolSize(size);
+            setCorePoolSize(size);
+        }
+    }
+
+    /**
+     * Cancels all tasks, which were submitted to this executor before this call. The tasks that are waiting in the
+     * queue are discarded and the threads running the tasks are interrupted. The executor is not shut down and
+     * accepts new tasks immediately.
+     */
+    public void cancelAll() {
+        epoch.incrementAndGet();
+        getQueue().clear();
+        running.forEach(task -> task.cancel(true));
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.util.concurrent.ThreadPoolExecutor#execute(java.lang.Runnable)
+     */
+    @Override
+    public void execute(Runnable command) {
+        super.execute(command instanceof Task ? command : new Task<>(command,null,epoch.get()));
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.util.concurrent.AbstractExecutorService#newTaskFor(java.lang.Runnable, java.lang.Object)
+     */
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new Task<>(runnable,value,epoch.get());
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.util.concurrent.AbstractExecutorService#newTaskFor(java.util.concurrent.Callable)
+     */
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new Task<>(callable,epoch.get());
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.util.concurrent.ThreadPoolExecutor#beforeExecute(java.lang.Thread, java.lang.Runnable)
+     */
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        Task<?> task = (Task<?>) r;
+        // register first and check the epoch afterwards, so that a concurrent cancelAll cannot miss the task
+        running.add(task);
+        if (task.epoch != epoch.get()) {
+            task.cancel(false);
+        }
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -34,8 +139,20 @@ public class ImageExecutor extends ThreadPoolExecutor {
      */
     @Override
     protected void afterExecute(Runnable r, Throwable t) {
-        if (t != null) {
-            t.printStackTrace();
+        Task<?> task = (Task<?>) r;
+        running.remove(task);
+        Throwable cause = t;
+        if (cause == null && task.isDone() && !task.isCancelled()) {
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                cause = e.getCause();
+            } catch (CancellationException | InterruptedException e) {
+                // the task was cancelled, which is not an error
+            }
+        }
+        if (cause != null) {
+            cause.printStackTrace();
         }
     }
 }
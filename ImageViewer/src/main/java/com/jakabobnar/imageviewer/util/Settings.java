@@ -32,6 +32,7 @@ public class Settings implements Serializable {
 
     private static final long serialVersionUID = 6536150871347674562L;
     private static final String USE_MULTIPLE_CORES = "useMultipleCores";
+    private static final String PERSIST_METADATA_CACHE = "persistMetadataCache";
     private static final String COLOR_MANAGE = "colorManage";
     private static final String SCALE_TO_FIT = "scaleSmallImagesToFit";
     private static final String SCALE_BEST_QUALITY = "scaleBestQuality";
@@ -75,6 +76,11 @@ public class Settings implements Serializable {
     private static final String SORTING_ORDER = "sortingOrder";
     private static final String RECENT_FILES = "recentFiles";
     private static final String QUALITY_OVER_SPEED = "preferQualityOverSpeed";
+    private static final String PREVIEW_CACHE_SIZE = "previewCacheSize";
+    private static final String IMAGE_CACHE_SIZE = "imageCacheSize";
+    private static final String MAX_LOOK_AHEAD = "maxLookAhead";
+    private static final String FILE_PREFETCH_SIZE = "filePrefetchSize";
+    private static final String SOURCE_CACHE_SIZE = "sourceCacheSize";
 
     public Rectangle frameBounds = new Rectangle(0,0,1000,600);
     public boolean fullFrame = false;
@@ -88,6 +94,7 @@ public class Settings implements Serializable {
     public Point exifLocation = null;
 
     public boolean useMultipleCores = true;
+    public boolean persistMetadataCache = true;
     public boolean colorManage = true;
     public boolean scaleToFit = true;
     public boolean scaleBestQuality = true;
@@ -105,6 +112,11 @@ public class Settings implements Serializable {
     public boolean autoHideMouse = true;
     public boolean waitForImagesToLoadWhenScrolling = true;
     public boolean preferQualityOverSpeedWhenScrolling = false;
+    public int previewCacheSize = 1024;
+    public int imageCacheSize = 512;
+    public int maxLookAhead = 6;
+    public int filePrefetchSize = 256;
+    public int sourceCacheSize = 256;
 
     public boolean systemColorProfile = false;
     public boolean useDisplayColorProfile = true;
@@ -149,6 +161,7 @@ public class Settings implements Serializable {
             }
         }
         useMultipleCores = Boolean.parseBoolean(properties.getProperty(USE_MULTIPLE_CORES,"true"));
+        persistMetadataCache = Boolean.parseBoolean(properties.getProperty(PERSIST_METADATA_CACHE,"true"));
         colorManage = Boolean.parseBoolean(properties.getProperty(COLOR_MANAGE,"true"));
         scaleToFit = Boolean.parseBoolean(properties.getProperty(SCALE_TO_FIT,"true"));
         scaleBestQuality = Boolean.parseBoolean(properties.getProperty(SCALE_BEST_QUALITY,"true"));
@@ -172,6 +185,31 @@ public class Settings implements Serializable {
         autoHideMouse = Boolean.parseBoolean(properties.getProperty(AUTO_HIDE_MOUSE,"true"));
         waitForImagesToLoadWhenScrolling = Boolean.parseBoolean(properties.getProperty(WAIT_FOR_IMAGES_TO_LOAD,"true"));
         preferQualityOverSpeedWhenScrolling = Boolean.parseBoolean(properties.getProperty(QUALITY_OVER_SPEED,"false"));
+        try {
+            previewCacheSize = Integer.parseInt(properties.getProperty(PREVIEW_CACHE_SIZE,"1024"));
+        } catch (NumberFormatException e) {
+            previewCacheSize = 1024;
+        }
+        try {
+            imageCacheSize = Integer.parseInt(properties.getProperty(IMAGE_CACHE_SIZE,"512"));
+        } catch (NumberFormatException e) {
+            imageCacheSize = 512;
+        }
+        try {
+            maxLookAhead = Integer.parseInt(properties.getProperty(MAX_LOOK_AHEAD,"6"));
+        } catch (NumberFormatException e) {
+            maxLookAhead = 6;
+        }
+        try {
+            filePrefetchSize = Integer.parseInt(properties.getProperty(FILE_PREFETCH_SIZE,"256"));
+        } catch (NumberFormatException e) {
+            filePrefetchSize = 256;
+        }
+        try {
+            sourceCacheSize = Integer.parseInt(properties.getProperty(SOURCE_CACHE_SIZE,"256"));
+        } catch (NumberFormatException e) {
+            sourceCacheSize = 256;
+        }
         systemColorProfile = Boolean.parseBoolean(properties.getProperty(USE_SYSTEM_COLOR_PROFILE,"true"));
         String profile = properties.getProperty(COLOR_PROFILE_FILE);
         if (profile != null) {
@@ -318,6 +356,7 @@ public class Settings implements Serializable {
     public void store() throws IOException {
         Properties properties = new Properties();
         properties.put(USE_MULTIPLE_CORES,String.valueOf(useMultipleCores));
+        properties.put(PERSIST_METADATA_CACHE,String.valueOf(persistMetadataCache));
         properties.put(COLOR_MANAGE,String.valueOf(colorManage));
         properties.put(SCALE_TO_FIT,String.valueOf(scaleToFit));
         properties.put(SCALE_BEST_QUALITY,String.valueOf(scaleBestQuality));
@@ -335,6 +374,11 @@ public class Settings implements Serializable {
         properties.put(AUTO_HIDE_MOUSE,String.valueOf(autoHideMouse));
         properties.put(WAIT_FOR_IMAGES_TO_LOAD,String.valueOf(waitForImagesToLoadWhenScrolling));
         properties.put(QUALITY_OVER_SPEED,String.valueOf(preferQualityOverSpeedWhenScrolling));
+        properties.put(PREVIEW_CACHE_SIZE,String.valueOf(previewCacheSize));
+        properties.put(IMAGE_CACHE_SIZE,String.valueOf(imageCacheSize));
+        properties.put(MAX_LOOK_AHEAD,String.valueOf(maxLookAhead));
+        properties.put(FILE_PREFETCH_SIZE,String.valueOf(filePrefetchSize));
+        properties.put(SOURCE_CACHE_SIZE,String.valueOf(sourceCacheSize));
         properties.put(USE_SYSTEM_COLOR_PROFILE,String.valueOf(systemColorProfile));
         properties.put(USE_DISPLAY_COLOR_PROFILE,String.valueOf(useDisplayColorProfile));
         if (colorProfile != null) {
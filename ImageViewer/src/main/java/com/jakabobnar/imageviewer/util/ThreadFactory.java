@@ -22,7 +22,7 @@ public final class ThreadFactory implements java.util.concurrent.ThreadFactory {
      *
      * @param name part of the name of all threads
      */
-    ThreadFactory(String name) {
+    public ThreadFactory(String name) {
         SecurityManager s = System.getSecurityManager();
         group = (s != null) ? s.getThreadGroup() : Thread.currentThread().getThreadGroup();
         namePrefix = "pool-" + poolNumber.getAndIncrement() + "-" + name + "-";
@@ -0,0 +1,127 @@
+/*
+ * (C) Copyright 2016 Jaka Bobnar. All rights reserved.
+ */
+package com.jakabobnar.imageviewer.image;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the name based sorting criteria: the natural ordering of the numbers within the names and the equivalence of
+ * {@link Sorting#sort(File[], FolderIndex)} and the comparator returned by {@link Sorting#getComparator()}.
+ *
+ * @author Jaka Bobnar
+ *
+ */
+public class SortingTest {
+
+    private static final String[] NAMES = { "img10.jpg","IMG2.jpg","img2.JPG","Img1.jpg","img007.jpg","img7.jpg",
+            "img07.jpg","img8.jpg","a.jpg","B.jpg","b.jpg","_x.jpg","x_1.jpg","x_01.jpg","X_1.jpg","\u00dfa.jpg",
+            "SSa.jpg","\u0130.jpg","i.jpg","\u0131.jpg","\u03a3.jpg","\u03c3.jpg","\u03c2.jpg","img.jpg","img0.jpg",
+            "img00.jpg","12.jpg","9.jpg","0012.jpg" };
+
+    @Test
+    public void testNumbersCompareByValue() {
+        assertTrue(Sorting.compareNatural("img2","img10") < 0);
+        assertTrue(Sorting.compareNatural("img10","img2") > 0);
+        assertTrue(Sorting.compareNatural("img9.jpg","img10.jpg") < 0);
+        assertTrue(Sorting.compareNatural("9","12") < 0);
+        assertTrue(Sorting.compareNatural("img","img0") < 0);
+        assertTrue(Sorting.compareNatural("a1b2","a1b10") < 0);
+        assertEquals(0,Sorting.compareNatural("img10","img10"));
+    }
+
+    @Test
+    public void testLeadingZeros() {
+        // the value decides first
+        assertTrue(Sorting.compareNatural("img007","img8") < 0);
+        assertTrue(Sorting.compareNatural("img08","img7") > 0);
+        assertTrue(Sorting.compareNatural("0012","9") > 0);
+        // equal values are ordered by the leading zeros, but never equal, so that the order is total
+        int c = Sorting.compareNatural("img007","img7");
+        assertTrue(c != 0);
+        assertEquals(-Integer.signum(c),Integer.signum(Sorting.compareNatural("img7","img007")));
+        assertTrue(Sorting.compareNatural("img007","img07") < 0);
+        assertTrue(Sorting.compareNatural("img07","img7") < 0);
+    }
+
+    @Test
+    public void testNaturalIgnoresCase() {
+        Comparator<File> comparator = Sorting.NATURAL_NAME.getComparator();
+        assertTrue(comparator.compare(new File("IMG2.jpg"),new File("img10.jpg")) < 0);
+        assertTrue(comparator.compare(new File("img2.jpg"),new File("IMG10.JPG")) < 0);
+        assertEquals(0,comparator.compare(new File("IMG2.jpg"),new File("img2.JPG")));
+    }
+
+    @Test
+    public void testNaturalComparatorIsConsistent() {
+        Comparator<File> comparator = Sorting.NATURAL_NAME.getComparator();
+        File[] files = toFiles(NAMES);
+        for (File a : files) {
+            for (File b : files) {
+                int ab = Integer.signum(comparator.compare(a,b));
+                assertEquals(a + " " + b,-ab,Integer.signum(comparator.compare(b,a)));
+                for (File c : files) {
+                    if (ab <= 0 && comparator.compare(b,c) <= 0) {
+                        assertTrue(a + " " + b + " " + c,comparator.compare(a,c) <= 0);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSortIsSameAsComparator() {
+        Random random = new Random(42);
+        for (Sorting sorting : new Sorting[] { Sorting.NAME,Sorting.NATURAL_NAME }) {
+            for (int i = 0; i < 50; i++) {
+                File[] files = toFiles(NAMES);
+                shuffle(files,random);
+                File[] expected = files.clone();
+                Arrays.sort(expected,sorting.getComparator());
+                sorting.sort(files,null);
+                assertArrayEquals(sorting.toString(),expected,files);
+            }
+        }
+    }
+
+    @Test
+    public void testNameIsSameAsCompareToIgnoreCase() {
+        Comparator<File> comparator = Sorting.NAME.getComparator();
+        File[] files = toFiles(NAMES);
+        for (File a : files) {
+            for (File b : files) {
+                File[] pair = { a,b };
+                Sorting.NAME.sort(pair,null);
+                int expected = Integer.signum(a.getName().compareToIgnoreCase(b.getName()));
+                assertEquals(a + " " + b,expected,Integer.signum(comparator.compare(a,b)));
+                if (expected > 0) {
+                    assertArrayEquals(a + " " + b,new File[] { b,a },pair);
+                } else {
+                    assertArrayEquals(a + " " + b,new File[] { a,b },pair);
+                }
+            }
+        }
+    }
+
+    private static File[] toFiles(String[] names) {
+        return Arrays.stream(names).map(File::new).toArray(File[]::new);
+    }
+
+    private static void shuffle(File[] files, Random random) {
+        for (int i = files.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            File f = files[i];
+            files[i] = files[j];
+            files[j] = f;
+        }
+    }
+}